@@ -1,9 +1,8 @@
 package com.example.bankcards.config;
 
-import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RoleCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -25,7 +24,7 @@ public class AdminInitializer {
     @Bean
     @Transactional
     public CommandLineRunner initAdmin(UserRepository userRepository,
-                                       RoleRepository roleRepository) {
+                                       RoleCache roleCache) {
         return args -> {
             String adminUsername = env.getProperty("app.admin.username");
             String adminPassword = env.getProperty("app.admin.password");
@@ -39,14 +38,11 @@ public class AdminInitializer {
                 return;
             }
 
-            Role adminRole = roleRepository.findByName("ROLE_ADMIN")
-                    .orElseThrow(() -> new IllegalStateException("ROLE_ADMIN не найден в базе данных"));
-
             User admin = new User();
             admin.setUsername(adminUsername);
             admin.setPassword(passwordEncoder.encode(adminPassword));
             admin.setEmail(adminEmail);
-            admin.setRoles(Set.of(adminRole));
+            admin.setRoles(Set.of(roleCache.get("ROLE_ADMIN")));
 
             userRepository.save(admin);
         };
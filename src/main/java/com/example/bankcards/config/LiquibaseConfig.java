@@ -1,5 +1,10 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.config.migration.AbstractCardNumberBackfillChange;
+import com.example.bankcards.util.EncryptionUtils;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.exception.LiquibaseException;
 import liquibase.integration.spring.SpringLiquibase;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,8 +15,22 @@ import javax.sql.DataSource;
 public class LiquibaseConfig {
 
     @Bean
-    public SpringLiquibase liquibase(DataSource dataSource) {
-        SpringLiquibase liquibase = new SpringLiquibase();
+    public SpringLiquibase liquibase(DataSource dataSource, EncryptionUtils encryptionUtils) {
+        // Ключи нужны миграциям, которые заполняют производные от номера карты колонки. Они передаются
+        // на время обновления, а не параметрами журнала: параметры попадают в контрольные суммы changeSet
+        SpringLiquibase liquibase = new SpringLiquibase() {
+            @Override
+            protected void performUpdate(Liquibase liquibase) throws LiquibaseException {
+                try {
+                    Scope.child(AbstractCardNumberBackfillChange.ENCRYPTION_UTILS_SCOPE_KEY, encryptionUtils,
+                            () -> super.performUpdate(liquibase));
+                } catch (LiquibaseException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new LiquibaseException(e);
+                }
+            }
+        };
         liquibase.setDataSource(dataSource);
         liquibase.setChangeLog("classpath:db/migration/changelog-master.yaml");
         liquibase.setContexts("development, production");
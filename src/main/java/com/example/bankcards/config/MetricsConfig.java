@@ -0,0 +1,47 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.metrics.RequestMetricsFilter;
+import com.example.bankcards.config.metrics.TimedDataSource;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // static: постпроцессор создается до остальных бинов и не тянет за собой конфигурацию.
+    // Маршрутизирующий прокси при включенной реплике не оборачивается: его пулы уже обернуты
+    @Bean
+    static BeanPostProcessor timedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)
+                        && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new TimedDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Без аспекта @Timed на CardService ничего не записывает
+    @Bean
+    TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<RequestMetricsFilter> registration = new FilterRegistrationBean<>(new RequestMetricsFilter(meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.config.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+// Транзакции readOnly = true читают с реплики, все остальное идет в основную БД.
+// Клиент, чья пишущая транзакция зафиксирована менее maxStaleness назад, читает из основной БД,
+// чтобы не увидеть свои же изменения еще не доехавшими до реплики. Нулевое окно отключает это правило.
+// Решение принимается при получении соединения, поэтому пул должен быть обернут в LazyConnectionDataSourceProxy:
+// иначе соединение берется в начале транзакции, до того как известен признак readOnly
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    // Отметка о последней записи хранится у клиента, а не в памяти узла: следующий запрос может прийти
+    // на другой экземпляр приложения. После фиксации она выставляется и заголовком, и cookie на maxStaleness;
+    // браузер вернет cookie сам, API-клиент без cookie должен повторить заголовок в следующих запросах.
+    // Отметка — время фиксации по часам узла, так что расхождение часов между узлами сокращает или удлиняет окно.
+    // Подделка отметки лишь переводит чтения самого клиента на основную БД и не дольше maxStaleness
+    public static final String LAST_WRITE_HEADER = "X-Last-Write";
+    public static final String LAST_WRITE_COOKIE = "last_write";
+
+    private final Duration maxStaleness;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxStaleness) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.maxStaleness = maxStaleness;
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        ServletRequestAttributes attributes = currentRequest();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (!maxStaleness.isZero() && attributes != null && attributes.getResponse() != null
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Окно отсчитывается от фиксации: до нее изменения не видны и в основной БД
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        markWrite(attributes.getResponse());
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+        if (!maxStaleness.isZero() && attributes != null && wroteRecently(attributes.getRequest())) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    private void markWrite(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        String marker = Long.toString(System.currentTimeMillis());
+        response.setHeader(LAST_WRITE_HEADER, marker);
+        Cookie cookie = new Cookie(LAST_WRITE_COOKIE, marker);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, maxStaleness.toSeconds()));
+        response.addCookie(cookie);
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        long lastWrite = Math.max(parseMarker(request.getHeader(LAST_WRITE_HEADER)), cookieMarker(request));
+        if (lastWrite == Long.MIN_VALUE) {
+            return false;
+        }
+        // Отметка немного из будущего — это часы другого узла, а не ошибка
+        return Math.abs(System.currentTimeMillis() - lastWrite) < maxStaleness.toMillis();
+    }
+
+    private static long cookieMarker(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return Long.MIN_VALUE;
+        }
+        long lastWrite = Long.MIN_VALUE;
+        for (Cookie cookie : request.getCookies()) {
+            if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                lastWrite = Math.max(lastWrite, parseMarker(cookie.getValue()));
+            }
+        }
+        return lastWrite;
+    }
+
+    private static long parseMarker(String value) {
+        if (value == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes
+                : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.config.metrics;
+
+// Накопитель времени JDBC-вызовов текущего HTTP-запроса. Вне запроса (миграции, планировщик)
+// накопитель не создается и время не считается
+public final class RequestDbTime {
+    private static final ThreadLocal<RequestDbTime> CURRENT = new ThreadLocal<>();
+
+    private long nanos;
+    private int statements;
+
+    private RequestDbTime() {
+    }
+
+    static RequestDbTime start() {
+        RequestDbTime dbTime = new RequestDbTime();
+        CURRENT.set(dbTime);
+        return dbTime;
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    static RequestDbTime current() {
+        return CURRENT.get();
+    }
+
+    void record(long elapsedNanos) {
+        nanos += elapsedNanos;
+        statements++;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+
+    int statements() {
+        return statements;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.config.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Время в БД и число SQL-выражений на HTTP-запрос, с теми же тегами method/uri, что и http.server.requests,
+// и единственная строка журнала на запрос (логгер com.example.bankcards.access) в формате ключ=значение
+@RequiredArgsConstructor
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final Logger accessLog = LoggerFactory.getLogger("com.example.bankcards.access");
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestDbTime dbTime = RequestDbTime.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDbTime.finish();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            Timer.builder("http.server.requests.db")
+                    .description("Время выполнения SQL-выражений за HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(dbTime.nanos(), TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("http.server.requests.db.statements")
+                    .description("Число SQL-выражений за HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(dbTime.statements());
+
+            if (accessLog.isInfoEnabled()) {
+                accessLog.info("method={} uri={} status={} durationMs={} dbMs={} dbStatements={}",
+                        request.getMethod(), uri, response.getStatus(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        TimeUnit.NANOSECONDS.toMillis(dbTime.nanos()), dbTime.statements());
+            }
+        }
+    }
+}
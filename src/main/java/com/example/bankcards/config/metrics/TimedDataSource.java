@@ -0,0 +1,68 @@
+package com.example.bankcards.config.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Обертка пула соединений, суммирующая время execute* всех выражений в RequestDbTime текущего запроса.
+// unwrap и прочие вызовы уходят в исходный пул, поэтому метрики Hikari продолжают работать
+public class TimedDataSource extends DelegatingDataSource {
+
+    public TimedDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    private static Connection timed(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && method.getReturnType().isInterface()
+                            && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(),
+                                new Class<?>[]{method.getReturnType()}, new StatementHandler(statement));
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private record StatementHandler(Statement statement) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            RequestDbTime dbTime = RequestDbTime.current();
+            if (dbTime == null || !method.getName().startsWith("execute")) {
+                return TimedDataSource.invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return TimedDataSource.invoke(statement, method, args);
+            } finally {
+                dbTime.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
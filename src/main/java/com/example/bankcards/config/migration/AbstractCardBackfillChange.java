@@ -0,0 +1,105 @@
+package com.example.bankcards.config.migration;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Заполняет колонку cards, вычисляемую из другой колонки той же строки, пачками по id
+@Getter
+@Setter
+public abstract class AbstractCardBackfillChange implements CustomTaskChange {
+    private Integer batchSize = 1000;
+
+    private int updatedRows;
+
+    protected abstract String getColumnName();
+
+    protected abstract String getSourceColumnName();
+
+    protected abstract Object deriveValue(long id, String sourceValue) throws CustomChangeException;
+
+    // Значения для всей пачки; по умолчанию строка за строкой
+    protected List<Object> deriveValues(List<Long> ids, List<String> sourceValues) throws CustomChangeException {
+        List<Object> values = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            values.add(deriveValue(ids.get(i), sourceValues.get(i)));
+        }
+        return values;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        String column = getColumnName();
+        String sourceColumn = getSourceColumnName();
+
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, " + sourceColumn + " FROM cards WHERE id > ? AND " + column + " IS NULL ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE cards SET " + column + " = ? WHERE id = ?")) {
+            long lastId = 0;
+            int batchRows;
+            do {
+                select.setLong(1, lastId);
+                select.setInt(2, batchSize);
+                List<Long> ids = new ArrayList<>(batchSize);
+                List<String> sourceValues = new ArrayList<>(batchSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong("id"));
+                        sourceValues.add(rs.getString(sourceColumn));
+                    }
+                }
+                batchRows = ids.size();
+                if (batchRows > 0) {
+                    List<Object> values = deriveValues(ids, sourceValues);
+                    for (int i = 0; i < batchRows; i++) {
+                        update.setObject(1, values.get(i));
+                        update.setLong(2, ids.get(i));
+                        update.addBatch();
+                    }
+                    lastId = ids.get(batchRows - 1);
+                    update.executeBatch();
+                    // Каждая пачка фиксируется отдельно, чтобы не держать блокировки на всей таблице
+                    if (!connection.getAutoCommit()) {
+                        connection.commit();
+                    }
+                    updatedRows += batchRows;
+                }
+            } while (batchRows == batchSize);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Ошибка при заполнении колонки " + column, e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Заполнена колонка " + getColumnName() + ", строк: " + updatedRows;
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
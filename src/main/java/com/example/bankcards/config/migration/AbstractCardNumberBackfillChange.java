@@ -0,0 +1,48 @@
+package com.example.bankcards.config.migration;
+
+import com.example.bankcards.util.EncryptionUtils;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.exception.CustomChangeException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Заполняет колонку, вычисляемую из расшифрованного номера карты.
+// EncryptionUtils с ключами из настроек приложения передается через Scope Liquibase (LiquibaseConfig)
+public abstract class AbstractCardNumberBackfillChange extends AbstractCardBackfillChange {
+    public static final String ENCRYPTION_UTILS_SCOPE_KEY = "bankcards.encryptionUtils";
+
+    private EncryptionUtils encryptionUtils;
+
+    protected abstract String deriveValue(EncryptionUtils encryptionUtils, String cardNumber);
+
+    @Override
+    protected String getSourceColumnName() {
+        return "card_number";
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        encryptionUtils = Scope.getCurrentScope().get(ENCRYPTION_UTILS_SCOPE_KEY, EncryptionUtils.class);
+        if (encryptionUtils == null) {
+            throw new CustomChangeException("Ключи шифрования не переданы миграции " + getColumnName());
+        }
+        super.execute(database);
+    }
+
+    @Override
+    protected Object deriveValue(long id, String encryptedCardNumber) {
+        return deriveValue(encryptionUtils, encryptionUtils.decrypt(encryptedCardNumber));
+    }
+
+    // Пачка номеров расшифровывается одним шифром
+    @Override
+    protected List<Object> deriveValues(List<Long> ids, List<String> encryptedCardNumbers) {
+        List<Object> values = new ArrayList<>(ids.size());
+        for (String cardNumber : encryptionUtils.decryptAll(encryptedCardNumbers)) {
+            values.add(deriveValue(encryptionUtils, cardNumber));
+        }
+        return values;
+    }
+}
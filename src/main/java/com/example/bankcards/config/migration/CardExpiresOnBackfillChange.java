@@ -0,0 +1,30 @@
+package com.example.bankcards.config.migration;
+
+import com.example.bankcards.util.CardExpiry;
+import liquibase.exception.CustomChangeException;
+
+import java.sql.Date;
+import java.time.format.DateTimeParseException;
+
+// Заполняет cards.expires_on из строки expiry_date ("MM/yy")
+public class CardExpiresOnBackfillChange extends AbstractCardBackfillChange {
+
+    @Override
+    protected String getColumnName() {
+        return "expires_on";
+    }
+
+    @Override
+    protected String getSourceColumnName() {
+        return "expiry_date";
+    }
+
+    @Override
+    protected Object deriveValue(long id, String expiryDate) throws CustomChangeException {
+        try {
+            return Date.valueOf(CardExpiry.lastDay(expiryDate));
+        } catch (DateTimeParseException e) {
+            throw new CustomChangeException("Некорректный срок действия карты с id " + id, e);
+        }
+    }
+}
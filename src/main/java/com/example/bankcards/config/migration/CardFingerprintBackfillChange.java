@@ -0,0 +1,16 @@
+package com.example.bankcards.config.migration;
+
+import com.example.bankcards.util.EncryptionUtils;
+
+public class CardFingerprintBackfillChange extends AbstractCardNumberBackfillChange {
+
+    @Override
+    protected String getColumnName() {
+        return "card_fingerprint";
+    }
+
+    @Override
+    protected String deriveValue(EncryptionUtils encryptionUtils, String cardNumber) {
+        return encryptionUtils.fingerprint(cardNumber);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.config.migration;
+
+import com.example.bankcards.util.CardMasker;
+import com.example.bankcards.util.EncryptionUtils;
+
+public class CardLastFourBackfillChange extends AbstractCardNumberBackfillChange {
+
+    @Override
+    protected String getColumnName() {
+        return "card_last_four";
+    }
+
+    @Override
+    protected String deriveValue(EncryptionUtils encryptionUtils, String cardNumber) {
+        return CardMasker.lastFour(cardNumber);
+    }
+}
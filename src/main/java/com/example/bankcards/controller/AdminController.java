@@ -1,16 +1,26 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkCardIssueDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.ExportFormat;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.service.CardIssuanceService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.ExportService;
 import com.example.bankcards.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -19,13 +29,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AdminController {
     private final CardService cardService;
+    private final CardIssuanceService cardIssuanceService;
     private final UserService userService;
+    private final ExportService exportService;
 
     @GetMapping("/cards")
     public ResponseEntity<Page<CardDTO>> getAllCards(Pageable pageable) {
         return ResponseEntity.ok(cardService.getAllCards(pageable));
     }
 
+    @GetMapping("/cards/expiring")
+    public ResponseEntity<Page<CardDTO>> getExpiringCards(@RequestParam(defaultValue = "30") int days, Pageable pageable) {
+        return ResponseEntity.ok(cardService.getExpiringCards(days, pageable));
+    }
+
     @GetMapping("/cards/{id}")
     public ResponseEntity<CardDTO> getAnyCardById(@PathVariable Long id) {
         return ResponseEntity.ok(cardService.getAnyCardById(id));
@@ -36,6 +53,12 @@ public class AdminController {
         return ResponseEntity.ok(cardService.createCardForUser(cardDTO, userId));
     }
 
+    // Тело читается потоком, поэтому большой файл не загружается в память целиком
+    @PostMapping(value = "/cards/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkCardIssueDTO> issueCards(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(cardIssuanceService.issueCards(request.getInputStream()));
+    }
+
     @PutMapping("/cards/{id}/block")
     public ResponseEntity<CardDTO> adminBlockCard(@PathVariable Long id) {
         return ResponseEntity.ok(cardService.adminBlockCard(id));
@@ -52,6 +75,20 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/export/cards")
+    public void exportCards(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = prepareExport(response, format, "cards");
+        exportService.exportCards(exportFormat, response.getOutputStream());
+    }
+
+    @GetMapping("/export/users")
+    public void exportUsers(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = prepareExport(response, format, "users");
+        exportService.exportUsers(exportFormat, response.getOutputStream());
+    }
+
     // Методы управления пользователями (из вашего UserController)
     @GetMapping("/users")
     public ResponseEntity<List<User>> getAllUsers() {
@@ -68,4 +105,13 @@ public class AdminController {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
+
+    private ExportFormat prepareExport(HttpServletResponse response, String format, String name) {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "." + exportFormat.name().toLowerCase() + "\"");
+        return exportFormat;
+    }
 }
@@ -1,24 +1,34 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferDTO;
+import com.example.bankcards.dto.BatchTransferResultDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardTransactionPageDTO;
 import com.example.bankcards.dto.TopUpDTO;
+import com.example.bankcards.dto.TopUpResultDTO;
 import com.example.bankcards.dto.TransferDTO;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/cards")
 @RequiredArgsConstructor
 public class CardController {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final CardService cardService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping
     public ResponseEntity<Page<CardDTO>> getUserCards(
@@ -40,14 +50,37 @@ public class CardController {
         return ResponseEntity.ok(cardService.getUserCardById(id, userDetails));
     }
 
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<CardTransactionPageDTO> getCardTransactions(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(cardService.getCardTransactions(id, beforeCreatedAt, beforeId, size, userDetails));
+    }
+
     @PostMapping("/transfer")
     public ResponseEntity<Void> transferBetweenCards(
             @RequestBody TransferDTO transferDTO,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
-        cardService.transferBetweenUserCards(transferDTO, userDetails);
+        idempotencyService.execute(idempotencyKey, userDetails.getUsername(), "transfer", transferDTO, Void.class, () -> {
+            cardService.transferBetweenUserCards(transferDTO, userDetails);
+            return null;
+        });
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResultDTO> transferBatch(
+            @RequestBody BatchTransferDTO batchDTO,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, userDetails.getUsername(), "transfer-batch",
+                batchDTO, BatchTransferResultDTO.class, () -> cardService.transferBatch(batchDTO, userDetails)));
+    }
+
     @PostMapping("/request-block/{id}")
     public ResponseEntity<Void> requestBlockCard(
             @PathVariable Long id,
@@ -57,9 +90,11 @@ public class CardController {
     }
 
     @PostMapping("/top-up")
-    public ResponseEntity<CardDTO> topUpCard(
+    public ResponseEntity<TopUpResultDTO> topUpCard(
             @RequestBody TopUpDTO topUpDTO,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
-        return ResponseEntity.ok(cardService.topUpUserCard(topUpDTO, userDetails));
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, userDetails.getUsername(), "top-up", topUpDTO,
+                TopUpResultDTO.class, () -> cardService.topUpUserCard(topUpDTO, userDetails)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransferDTO {
+    private List<TransferDTO> transfers;
+    // ALL_OR_NOTHING — любая ошибка отменяет весь пакет; BEST_EFFORT — ошибочные переводы пропускаются
+    private Mode mode = Mode.ALL_OR_NOTHING;
+
+    public enum Mode {
+        ALL_OR_NOTHING,
+        BEST_EFFORT
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResultDTO {
+    private int applied;
+    private int rejected;
+    private List<Item> results;
+
+    // Результат перевода по его индексу в пакете
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private Status status;
+        private String error;
+    }
+
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+}
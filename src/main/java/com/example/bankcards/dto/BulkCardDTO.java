@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+// Строка массового выпуска карт: JSON-массив или NDJSON, по одному объекту на строку
+@Data
+public class BulkCardDTO {
+    @NotNull(message = "Не указан пользователь")
+    private Long userId;
+    @NotBlank(message = "Не указан номер карты")
+    @Pattern(regexp = "^[0-9]{16}$", message = "Номер карты должен состоять из 16 цифр")
+    private String cardNumber;
+    @NotBlank(message = "Не указан держатель карты")
+    private String cardHolder;
+    @NotBlank(message = "Не указана дата истечения срока годности")
+    @Pattern(regexp = "^(0[1-9]|1[0-2])/([0-9]{2})$", message = "Дата истечения срока годности имеет формат ММ/гг")
+    private String expiryDate;
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCardIssueDTO {
+    private int created;
+    private int rejected;
+    private List<BulkCardResultDTO> results;
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Результат по одной строке массового выпуска; index — номер строки во входных данных, начиная с 0
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCardResultDTO {
+    private int index;
+    private Status status;
+    private Long cardId;
+    private String cardNumber;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+}
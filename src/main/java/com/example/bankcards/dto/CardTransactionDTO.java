@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardTransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardTransactionDTO {
+    private Long id;
+    private UUID operationId;
+    private CardTransactionType type;
+    private BigDecimal amount;
+    private BigDecimal balanceAfter;
+    private Long counterpartyCardId;
+    private LocalDateTime createdAt;
+}
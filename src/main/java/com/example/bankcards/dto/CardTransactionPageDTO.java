@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Страница истории операций. Следующая страница запрашивается с
+// beforeCreatedAt = nextCreatedAt и beforeId = nextId; null означает, что страниц больше нет
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardTransactionPageDTO {
+    private List<CardTransactionDTO> transactions;
+    private LocalDateTime nextCreatedAt;
+    private Long nextId;
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Проекция карты для чтения: только отображаемые столбцы, без управляемой сущности и прокси пользователя
+public record CardView(Long id, String cardLastFour, String cardHolder, LocalDate expiresOn,
+                       CardStatus status, BigDecimal balance) {
+}
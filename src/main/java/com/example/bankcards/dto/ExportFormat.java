@@ -0,0 +1,27 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.exception.CardOperationException;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static ExportFormat fromParameter(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new CardOperationException("Неподдерживаемый формат выгрузки: " + value);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Итог пополнения: новый баланс возвращается тем же UPDATE, что его изменил
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopUpResultDTO {
+    private Long id;
+    private BigDecimal balance;
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.dto;
+
+import java.time.LocalDateTime;
+
+// Строка выгрузки пользователей: пользователь повторяется для каждой своей роли
+public record UserExportRow(Long id, String username, String email, LocalDateTime createdAt, String role) {
+}
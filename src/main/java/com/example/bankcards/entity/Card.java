@@ -4,27 +4,39 @@ import com.example.bankcards.entity.CardStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "cards")
 @Data
 @NoArgsConstructor
+@DynamicUpdate
 public class Card {
+    // Последовательность с шагом 50 вместо IDENTITY: Hibernate выделяет id блоками и может вставлять карты пакетами
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_id_seq")
+    @SequenceGenerator(name = "cards_id_seq", sequenceName = "cards_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "card_number", nullable = false, length = 255)
     private String cardNumber;
 
+    @Column(name = "card_fingerprint", nullable = false, unique = true, length = 64)
+    private String cardFingerprint;
+
+    @Column(name = "card_last_four", nullable = false, length = 4)
+    private String cardLastFour;
+
     @Column(name = "card_holder", nullable = false)
     private String cardHolder;
 
-    @Column(name = "expiry_date", nullable = false, length = 5)
-    private String expiryDate;
+    // Последний день действия. Строка "MM/yy" формируется только в DTO
+    @Column(name = "expires_on", nullable = false)
+    private LocalDate expiresOn;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
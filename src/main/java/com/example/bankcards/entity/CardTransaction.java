@@ -0,0 +1,53 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Запись журнала операций по карте. Журнал только дополняется:
+// строки пишутся пакетами через JDBC (CardTransactionBatchRepository) и никогда не изменяются.
+// Журнал двойной записи: у каждой операции (operation_id) сумма amount равна нулю, а сумма amount
+// по карте сходится с ее балансом. Деньги извне (пополнения, начальные остатки) списываются
+// со служебного счета EXTERNAL_ACCOUNT_ID, которому не соответствует ни одна карта
+@Entity
+@Table(name = "card_transactions")
+@Immutable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardTransaction {
+    // Остаток внешнего счета не ведется: иначе все пополнения обновляли бы одну строку
+    public static final long EXTERNAL_ACCOUNT_ID = 0L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "operation_id", nullable = false)
+    private UUID operationId;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "counterparty_card_id")
+    private Long counterpartyCardId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CardTransactionType type;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    // Для проводок внешнего счета не заполняется
+    @Column(name = "balance_after")
+    private BigDecimal balanceAfter;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.entity;
+
+public enum CardTransactionType {
+    OPENING_BALANCE,
+    TOP_UP,
+    TRANSFER_DEBIT,
+    TRANSFER_CREDIT
+}
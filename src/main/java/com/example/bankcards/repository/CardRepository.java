@@ -1,20 +1,97 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardView;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
-    Page<Card> findAllByUser(User user, Pageable pageable);
-    List<Card> findAllByUser(User user);
-    Optional<Card> findByIdAndUser(Long id, User user);
-    Optional<Card> findByCardNumber(String cardNumber);
-    boolean existsByCardNumber(String cardNumber);
+    Optional<Card> findByCardFingerprint(String cardFingerprint);
+    boolean existsByCardFingerprint(String cardFingerprint);
+
+    @Query("SELECT c.cardFingerprint FROM Card c WHERE c.cardFingerprint IN :fingerprints")
+    Set<String> findExistingFingerprints(@Param("fingerprints") Collection<String> fingerprints);
+
+    // Запросы владельца фильтруют по внешнему ключу user_id (индекс ix_cards_user_id_id) без обращения к users
+    @Query("SELECT c FROM Card c WHERE c.id = :id AND c.user.id = :userId")
+    Optional<Card> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT count(c) > 0 FROM Card c WHERE c.id = :id AND c.user.id = :userId")
+    boolean existsByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    String CARD_VIEW = "SELECT new com.example.bankcards.dto.CardView(" +
+            "c.id, c.cardLastFour, c.cardHolder, c.expiresOn, c.status, c.balance) FROM Card c ";
+
+    @Query(value = CARD_VIEW, countQuery = "SELECT count(c) FROM Card c")
+    Page<CardView> findAllViews(Pageable pageable);
+
+    @Query(value = CARD_VIEW + "WHERE c.user.id = :userId",
+            countQuery = "SELECT count(c) FROM Card c WHERE c.user.id = :userId")
+    Page<CardView> findViewsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(CARD_VIEW + "WHERE c.user.id = :userId ORDER BY c.id")
+    List<CardView> findViewsByUserId(@Param("userId") Long userId);
+
+    // Активные карты со сроком в диапазоне дат: чтение по индексу ix_cards_active_expires_on
+    @Query(value = CARD_VIEW + "WHERE c.status = com.example.bankcards.entity.CardStatus.ACTIVE " +
+            "AND c.expiresOn BETWEEN :from AND :to ORDER BY c.expiresOn, c.id",
+            countQuery = "SELECT count(c) FROM Card c WHERE c.status = com.example.bankcards.entity.CardStatus.ACTIVE " +
+                    "AND c.expiresOn BETWEEN :from AND :to")
+    Page<CardView> findActiveViewsExpiringBetween(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                  Pageable pageable);
+
+    @Query(CARD_VIEW + "WHERE c.id = :id")
+    Optional<CardView> findViewById(@Param("id") Long id);
+
+    @Query(CARD_VIEW + "WHERE c.id = :id AND c.user.id = :userId")
+    Optional<CardView> findViewByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Серверный курсор для выгрузки: строки читаются порциями по fetch size, снимки для dirty checking не создаются
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Card c ORDER BY c.id")
+    Stream<Card> streamAll();
+
+    // Атомарное пополнение активной карты владельца одним условным UPDATE за одно обращение к БД
+    // (PostgreSQL UPDATE ... RETURNING). Пустой результат означает, что карта не найдена, не активна
+    // или ее срок истек, а статус еще не обновлен. today берется по часам приложения, как и в expireActiveCards
+    @Query(value = "UPDATE cards SET balance = balance + :amount " +
+            "WHERE id = :id AND user_id = :userId AND status = 'ACTIVE' AND expires_on >= :today " +
+            "RETURNING balance", nativeQuery = true)
+    Optional<BigDecimal> topUpActiveCard(@Param("id") Long id, @Param("userId") Long userId,
+                                         @Param("amount") BigDecimal amount, @Param("today") LocalDate today);
+
+    // Строки блокируются в порядке id, поэтому встречные переводы не приводят к взаимоблокировке
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids AND c.user.id = :userId ORDER BY c.id")
+    List<Card> findAllByIdInAndUserIdForUpdate(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Одна пачка очистки: подзапрос берет не больше limit строк по индексу ix_cards_active_expires_on
+    @Modifying
+    @Query(value = "UPDATE cards SET status = 'EXPIRED' WHERE id IN (" +
+            "SELECT id FROM cards WHERE status = 'ACTIVE' AND expires_on < :today LIMIT :limit)", nativeQuery = true)
+    int expireActiveCards(@Param("today") LocalDate today, @Param("limit") int limit);
 }
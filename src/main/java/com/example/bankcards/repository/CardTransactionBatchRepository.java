@@ -0,0 +1,9 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardTransaction;
+
+import java.util.List;
+
+public interface CardTransactionBatchRepository {
+    void appendAll(List<CardTransaction> transactions);
+}
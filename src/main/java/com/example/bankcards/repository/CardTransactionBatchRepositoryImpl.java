@@ -0,0 +1,41 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+// Вставка пакетом JDBC в текущей транзакции, минуя контекст персистентности
+@RequiredArgsConstructor
+public class CardTransactionBatchRepositoryImpl implements CardTransactionBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO card_transactions " +
+            "(operation_id, card_id, counterparty_card_id, type, amount, balance_after, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void appendAll(List<CardTransaction> transactions) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, transactions, BATCH_SIZE, (ps, transaction) -> {
+            ps.setObject(1, transaction.getOperationId());
+            ps.setLong(2, transaction.getCardId());
+            if (transaction.getCounterpartyCardId() != null) {
+                ps.setLong(3, transaction.getCounterpartyCardId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setString(4, transaction.getType().name());
+            ps.setBigDecimal(5, transaction.getAmount());
+            if (transaction.getBalanceAfter() != null) {
+                ps.setBigDecimal(6, transaction.getBalanceAfter());
+            } else {
+                ps.setNull(6, Types.NUMERIC);
+            }
+            ps.setTimestamp(7, Timestamp.valueOf(transaction.getCreatedAt()));
+        });
+    }
+}
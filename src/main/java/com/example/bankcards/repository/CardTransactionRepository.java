@@ -0,0 +1,32 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardTransactionDTO;
+import com.example.bankcards.entity.CardTransaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long>, CardTransactionBatchRepository {
+
+    String TRANSACTION_DTO = "SELECT new com.example.bankcards.dto.CardTransactionDTO(" +
+            "t.id, t.operationId, t.type, t.amount, t.balanceAfter, t.counterpartyCardId, t.createdAt) " +
+            "FROM CardTransaction t ";
+
+    // Keyset-пагинация по (created_at, id): стоимость не зависит от глубины страницы
+    @Query(TRANSACTION_DTO + "WHERE t.cardId = :cardId ORDER BY t.createdAt DESC, t.id DESC")
+    List<CardTransactionDTO> findLatestByCardId(@Param("cardId") Long cardId, Pageable pageable);
+
+    // Следующая страница: Index Only Scan по ix_card_transactions_card_history, created_at <= :createdAt отсекает секции
+    @Query(TRANSACTION_DTO + "WHERE t.cardId = :cardId AND t.createdAt <= :createdAt " +
+            "AND (t.createdAt, t.id) < (cast(:createdAt as LocalDateTime), cast(:id as Long)) ORDER BY t.createdAt DESC, t.id DESC")
+    List<CardTransactionDTO> findByCardIdBefore(@Param("cardId") Long cardId,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+}
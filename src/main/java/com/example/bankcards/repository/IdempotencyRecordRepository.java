@@ -0,0 +1,47 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    // 0 — ключ уже занят. Если занявшая его транзакция еще не завершена,
+    // PostgreSQL ждет ее фиксации или отката прежде чем вернуть результат
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (username, idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (:username, :key, :requestHash, :createdAt, :expiresAt) " +
+            "ON CONFLICT (username, idempotency_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("username") String username,
+                       @Param("key") String key,
+                       @Param("requestHash") String requestHash,
+                       @Param("createdAt") LocalDateTime createdAt,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody " +
+            "WHERE r.username = :username AND r.idempotencyKey = :key")
+    int saveResponse(@Param("username") String username,
+                     @Param("key") String key,
+                     @Param("responseBody") String responseBody);
+
+    // Освобождает занятый ключ, если срок его хранения истек, не дожидаясь плановой очистки
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+            "WHERE r.username = :username AND r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("username") String username,
+                        @Param("key") String key,
+                        @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
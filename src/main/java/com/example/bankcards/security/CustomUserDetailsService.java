@@ -1,10 +1,11 @@
 package com.example.bankcards.security;
 
-import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,19 +14,32 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+    private final UserPrincipalCache userPrincipalCache;
     private final UserRepository userRepository;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        UserPrincipalCache.CachedUser user = userPrincipalCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь с именем пользователя не найден: " + username));
-        log.info("Загруженные роли пользователей: {}", user.getRoles());
+        log.debug("Загруженные роли пользователя {}: {}", username, user.roles());
         return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                user.getAuthorities()
+                user.username(),
+                user.password(),
+                AuthorityUtils.createAuthorityList(user.roles())
         );
     }
-}
\ No newline at end of file
+
+    // Вызывается DaoAuthenticationProvider после успешного входа, если хеш создан другим алгоритмом
+    // или с меньшей стоимостью, чем задано в app.security.password
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        userPrincipalCache.evict(user.getUsername());
+        log.debug("Хеш пароля пользователя {} пересчитан", user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,14 +21,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtTokenFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
 
+    // Уже проверенные токены; запись живет не дольше срока действия самого токена
+    private final Cache<String, AuthenticatedToken> authenticatedTokens;
+
+    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider,
+                          UserDetailsService userDetailsService,
+                          @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userDetailsService = userDetailsService;
+        this.authenticatedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -37,12 +56,14 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        final String username = jwtTokenProvider.extractUsername(jwt);
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            log.info("Роли пользователей: {}", userDetails.getAuthorities());
-            if (jwtTokenProvider.isTokenValid(jwt, userDetails)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedToken token = authenticatedTokens.getIfPresent(jwt);
+            if (token == null) {
+                token = authenticate(jwt);
+            }
+            if (token != null) {
+                UserDetails userDetails = token.userDetails();
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -54,4 +75,48 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private AuthenticatedToken authenticate(String jwt) {
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Недействительный JWT токен: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+
+        UserDetails userDetails = jwtTokenProvider.extractUserDetails(claims);
+        if (userDetails == null) {
+            // Токен без ролей — берем пользователя из хранилища
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        AuthenticatedToken token = new AuthenticatedToken(userDetails, claims.getExpiration().getTime());
+        authenticatedTokens.put(jwt, token);
+        return token;
+    }
+
+    private record AuthenticatedToken(UserDetails userDetails, long expiresAtMillis) {
+    }
+
+    private static class TokenExpiry implements Expiry<String, AuthenticatedToken> {
+        @Override
+        public long expireAfterCreate(String key, AuthenticatedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, AuthenticatedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, AuthenticatedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.RoleRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Роли создаются миграциями и не меняются во время работы, поэтому читаются один раз при старте.
+// Отсоединенная сущность годится для связи пользователя с ролью: при вставке нужен только ее id
+@Component
+public class RoleCache {
+    private final Map<String, Role> roles;
+
+    public RoleCache(RoleRepository roleRepository) {
+        this.roles = roleRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Role::getName, Function.identity()));
+    }
+
+    public Role get(String name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            throw new IllegalStateException("Роль не найдена в базе данных: " + name);
+        }
+        return role;
+    }
+}
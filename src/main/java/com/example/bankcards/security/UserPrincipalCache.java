@@ -0,0 +1,76 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// Кэш пользователей по имени: избавляет фильтр и сервисы от повторных запросов users/user_roles.
+// Хранит неизменяемый снимок, а не сущность: сущность отсоединена, а UserDetails
+// стирает пароль после аутентификации
+@Component
+public class UserPrincipalCache {
+    private final UserRepository userRepository;
+    private final Cache<String, CachedUser> users;
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.cache.users.max-size:10000}") long maxSize,
+                              @Value("${app.cache.users.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    public Optional<CachedUser> findByUsername(String username) {
+        CachedUser user = users.getIfPresent(username);
+        if (user == null) {
+            // Загрузка вне cache.get(key, loader): блокирующий запрос внутри compute
+            // закрепил бы виртуальный поток за потоком-носителем
+            user = load(username);
+            if (user != null) {
+                users.put(username, user);
+            }
+        }
+        return Optional.ofNullable(user);
+    }
+
+    // Вызывать после изменения пользователя или его ролей
+    public void evict(String username) {
+        users.invalidate(username);
+    }
+
+    public void evictById(Long id) {
+        users.asMap().values().removeIf(user -> user.id().equals(id));
+    }
+
+    private CachedUser load(String username) {
+        return userRepository.findByUsername(username)
+                .map(CachedUser::from)
+                .orElse(null);
+    }
+
+    public record CachedUser(Long id, String username, String password, List<String> roles) {
+        static CachedUser from(User user) {
+            return new CachedUser(
+                    user.getId(),
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getRoles().stream().map(Role::getName).toList()
+            );
+        }
+    }
+}
@@ -2,14 +2,17 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.AuthRequest;
 import com.example.bankcards.dto.AuthResponse;
-import com.example.bankcards.entity.Role;
+import com.example.bankcards.dto.RefreshTokenRequest;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.ServiceOverloadedException;
 import com.example.bankcards.exception.UserAlreadyExistsException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.RoleCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -25,11 +28,15 @@ import java.util.Set;
 @Service
 @RequiredArgsConstructor
 public class AuthService {
+    static final String USERNAME_CONSTRAINT = "ux_users_username";
+    static final String EMAIL_CONSTRAINT = "ux_users_email";
+
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleCache roleCache;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenService refreshTokenService;
 
     public AuthResponse authenticateUser(AuthRequest authRequest) {
         try {
@@ -43,33 +50,54 @@ public class AuthService {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             String jwt = jwtTokenProvider.generateToken(userDetails);
-            return new AuthResponse(jwt);
+            return new AuthResponse(jwt, refreshTokenService.issue(userDetails.getUsername()));
         } catch (BadCredentialsException e) {
-            log.error("Не удалось выполнить аутентификацию пользователя: " + authRequest.getUsername(), e);
+            log.warn("Не удалось выполнить аутентификацию пользователя: {}", authRequest.getUsername());
             throw new BadCredentialsException("Invalid username or password");
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Неверное имя пользователя или пароль", e);
             throw new RuntimeException("Authentication failed", e);
         }
     }
 
-    public void registerUser(AuthRequest authRequest) {
-        if (userRepository.existsByUsername(authRequest.getUsername())) {
-            throw new UserAlreadyExistsException("Имя пользователя уже занято!");
-        }
+    // Новая пара токенов без проверки пароля
+    public AuthResponse refreshToken(RefreshTokenRequest request) {
+        return refreshTokenService.refresh(request.getRefreshToken());
+    }
 
-        if (userRepository.existsByEmail(authRequest.getEmail())) {
-            throw new UserAlreadyExistsException("Электронная почта уже используется!");
-        }
+    public void logout(RefreshTokenRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
+    }
 
+    // Уникальность имени и почты проверяют ограничения таблицы users: предварительные SELECT
+    // не защищают от параллельной регистрации и добавляют обращения к БД
+    public void registerUser(AuthRequest authRequest) {
         User user = new User();
         user.setUsername(authRequest.getUsername());
         user.setEmail(authRequest.getEmail());
         user.setPassword(passwordEncoder.encode(authRequest.getPassword()));
+        user.setRoles(Set.of(roleCache.get("ROLE_USER")));
 
-        Role userRole = roleRepository.findByName("ROLE_USER")
-                .orElseThrow(() -> new RuntimeException("Error: Роль не найдена."));
-        user.setRoles(Set.of(userRole));
-        userRepository.save(user);
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyExists(e);
+        }
+    }
+
+    private static UserAlreadyExistsException alreadyExists(DataIntegrityViolationException e) {
+        // Имена ограничений из changeSet 26; значения строки не разбираются
+        String constraintName = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName()
+                : null;
+        if (USERNAME_CONSTRAINT.equals(constraintName)) {
+            return new UserAlreadyExistsException("Имя пользователя уже занято!");
+        }
+        if (EMAIL_CONSTRAINT.equals(constraintName)) {
+            return new UserAlreadyExistsException("Электронная почта уже используется!");
+        }
+        return new UserAlreadyExistsException("Пользователь с таким именем или электронной почтой уже существует");
     }
 }
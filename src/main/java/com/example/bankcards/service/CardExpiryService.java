@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+// Переводит активные карты с истекшим сроком в EXPIRED. Обновление идет пачками по chunkSize строк,
+// каждая в своей короткой транзакции, поэтому даже на десятках миллионов карт блокировки строк
+// держатся недолго. Между узлами задача разделяется через scheduler_locks
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.cards.expiry-sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class CardExpiryService {
+    static final String LOCK_NAME = "card-expiry-sweep";
+
+    private final CardRepository cardRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration lockLease;
+
+    public CardExpiryService(CardRepository cardRepository,
+                             SchedulerLockService schedulerLockService,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.cards.expiry-sweep.chunk-size:5000}") int chunkSize,
+                             @Value("${app.cards.expiry-sweep.lock-lease:5m}") Duration lockLease) {
+        this.cardRepository = cardRepository;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.lockLease = lockLease;
+    }
+
+    @Scheduled(cron = "${app.cards.expiry-sweep.cron:0 5 0 * * *}")
+    public void expireCards() {
+        if (!schedulerLockService.tryLock(LOCK_NAME, lockLease)) {
+            log.debug("Очистка истекших карт уже выполняется на другом узле");
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            long expired = 0;
+            int updated;
+            do {
+                updated = transactionTemplate.execute(status -> cardRepository.expireActiveCards(today, chunkSize));
+                expired += updated;
+            } while (updated == chunkSize && schedulerLockService.extend(LOCK_NAME, lockLease));
+            log.info("Переведено в статус EXPIRED карт: {}", expired);
+        } finally {
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardDTO;
+import com.example.bankcards.dto.BulkCardIssueDTO;
+import com.example.bankcards.dto.BulkCardResultDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardExpiry;
+import com.example.bankcards.util.CardMasker;
+import com.example.bankcards.util.EncryptionUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Массовый выпуск карт. Входные строки читаются потоком и обрабатываются пакетами:
+// на пакет приходится по одному запросу проверки пользователей и отпечатков и одна транзакция
+// с пакетной вставкой (id выделяются из последовательности cards_id_seq блоками)
+@Slf4j
+@Service
+public class CardIssuanceService {
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final EncryptionUtils encryptionUtils;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public CardIssuanceService(CardRepository cardRepository,
+                               UserRepository userRepository,
+                               EncryptionUtils encryptionUtils,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               Validator validator,
+                               @Value("${app.cards.bulk.chunk-size:1000}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.encryptionUtils = encryptionUtils;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    // Принимает JSON-массив или NDJSON. Строки из уже сохраненных пакетов остаются выпущенными,
+    // даже если дальше во входных данных встретится ошибка формата
+    public BulkCardIssueDTO issueCards(InputStream input) throws IOException {
+        List<BulkCardResultDTO> results = new ArrayList<>();
+        List<BulkCardDTO> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try (MappingIterator<BulkCardDTO> rows = objectMapper.readerFor(BulkCardDTO.class).readValues(input)) {
+            while (rows.hasNextValue()) {
+                chunk.add(rows.nextValue());
+                index++;
+                if (chunk.size() == chunkSize) {
+                    issueChunk(chunk, index - chunk.size(), results);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            issueChunk(chunk, index - chunk.size(), results);
+            chunk.clear();
+            results.add(rejected(index, null, "Некорректный формат строки: " + e.getOriginalMessage()));
+        }
+        issueChunk(chunk, index - chunk.size(), results);
+
+        int created = (int) results.stream()
+                .filter(result -> result.getStatus() == BulkCardResultDTO.Status.CREATED)
+                .count();
+        log.debug("Массовый выпуск карт: создано {}, отклонено {}", created, results.size() - created);
+        return new BulkCardIssueDTO(created, results.size() - created, results);
+    }
+
+    private void issueChunk(List<BulkCardDTO> rows, int firstIndex, List<BulkCardResultDTO> results) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Проверки, не требующие БД: формат полей и повтор номера внутри пакета
+        BulkCardResultDTO[] chunkResults = new BulkCardResultDTO[rows.size()];
+        String[] fingerprints = new String[rows.size()];
+        Set<String> chunkFingerprints = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            BulkCardDTO row = rows.get(i);
+            int index = firstIndex + i;
+            Set<ConstraintViolation<BulkCardDTO>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                chunkResults[i] = rejected(index, row, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            fingerprints[i] = encryptionUtils.fingerprint(row.getCardNumber());
+            if (!chunkFingerprints.add(fingerprints[i])) {
+                chunkResults[i] = rejected(index, row, "Номер карты повторяется во входных данных");
+                continue;
+            }
+            userIds.add(row.getUserId());
+        }
+
+        Set<Long> existingUsers = userIds.isEmpty() ? Set.of() : userRepository.findExistingIds(userIds);
+        Set<String> existingFingerprints = chunkFingerprints.isEmpty()
+                ? Set.of()
+                : cardRepository.findExistingFingerprints(chunkFingerprints);
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (chunkResults[i] != null) {
+                continue;
+            }
+            BulkCardDTO row = rows.get(i);
+            if (!existingUsers.contains(row.getUserId())) {
+                chunkResults[i] = rejected(firstIndex + i, row, "Пользователь с id не найден: " + row.getUserId());
+            } else if (existingFingerprints.contains(fingerprints[i])) {
+                chunkResults[i] = rejected(firstIndex + i, row, "Карта с этим номером уже существует");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                List<Card> cards = transactionTemplate.execute(status -> {
+                    List<Card> newCards = new ArrayList<>(accepted.size());
+                    for (int i : accepted) {
+                        newCards.add(newCard(rows.get(i), fingerprints[i]));
+                    }
+                    return cardRepository.saveAll(newCards);
+                });
+                for (int j = 0; j < accepted.size(); j++) {
+                    int i = accepted.get(j);
+                    chunkResults[i] = new BulkCardResultDTO(firstIndex + i, BulkCardResultDTO.Status.CREATED,
+                            cards.get(j).getId(), CardMasker.maskCardNumber(rows.get(i).getCardNumber()), null);
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Номер успели выпустить параллельно — пакет откатывается целиком
+                log.warn("Пакет массового выпуска карт начиная со строки {} не сохранен: {}", firstIndex, e.getMessage());
+                for (int i : accepted) {
+                    chunkResults[i] = rejected(firstIndex + i, rows.get(i), "Пакет не сохранен из-за конфликта данных, повторите строку");
+                }
+            }
+        }
+
+        for (BulkCardResultDTO result : chunkResults) {
+            results.add(result);
+        }
+    }
+
+    private Card newCard(BulkCardDTO row, String cardFingerprint) {
+        Card card = new Card();
+        card.setCardNumber(encryptionUtils.encrypt(row.getCardNumber()));
+        card.setCardFingerprint(cardFingerprint);
+        card.setCardLastFour(CardMasker.lastFour(row.getCardNumber()));
+        card.setCardHolder(row.getCardHolder());
+        // Строка уже проверена валидатором по формату MM/yy
+        card.setExpiresOn(CardExpiry.lastDay(row.getExpiryDate()));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.ZERO);
+        card.setUser(userRepository.getReferenceById(row.getUserId()));
+        return card;
+    }
+
+    private BulkCardResultDTO rejected(int index, BulkCardDTO row, String error) {
+        String cardNumber = row != null && row.getCardNumber() != null && row.getCardNumber().matches("^[0-9]{16}$")
+                ? CardMasker.maskCardNumber(row.getCardNumber())
+                : null;
+        return new BulkCardResultDTO(index, BulkCardResultDTO.Status.REJECTED, null, cardNumber, error);
+    }
+}
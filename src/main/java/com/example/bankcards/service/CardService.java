@@ -1,19 +1,32 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferDTO;
+import com.example.bankcards.dto.BatchTransferResultDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardTransactionDTO;
+import com.example.bankcards.dto.CardTransactionPageDTO;
+import com.example.bankcards.dto.CardView;
 import com.example.bankcards.dto.TopUpDTO;
+import com.example.bankcards.dto.TopUpResultDTO;
 import com.example.bankcards.dto.TransferDTO;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.CardTransactionType;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserPrincipalCache;
+import com.example.bankcards.util.CardExpiry;
 import com.example.bankcards.util.CardMasker;
 import com.example.bankcards.util.EncryptionUtils;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -21,25 +34,54 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+// Таймер card.service на каждый публичный метод с тегами method и exception (none при успехе)
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "card.service", description = "Время и исход операций с картами")
 public class CardService {
+    private static final int MAX_TRANSACTIONS_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_TRANSFERS = 1000;
+
     private final CardRepository cardRepository;
+    private final CardTransactionRepository cardTransactionRepository;
     private final UserRepository userRepository;
     private final EncryptionUtils encryptionUtils;
+    private final UserPrincipalCache userPrincipalCache;
 
     // Методы для администратора
+    @Transactional(readOnly = true)
     public Page<CardDTO> getAllCards(Pageable pageable) {
-        return cardRepository.findAll(pageable).map(this::convertToDTO);
+        return cardRepository.findAllViews(pageable).map(this::convertToDTO);
     }
 
+    // Активные карты, срок которых заканчивается в ближайшие days дней
+    @Transactional(readOnly = true)
+    public Page<CardDTO> getExpiringCards(int days, Pageable pageable) {
+        if (days < 0) {
+            throw new CardOperationException("Количество дней не может быть отрицательным");
+        }
+        LocalDate today = LocalDate.now();
+        return cardRepository.findActiveViewsExpiringBetween(today, today.plusDays(days), pageable)
+                .map(this::convertToDTO);
+    }
+
+    @Transactional(readOnly = true)
     public CardDTO getAnyCardById(Long id) {
-        Card card = cardRepository.findById(id)
+        CardView card = cardRepository.findViewById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
         return convertToDTO(card);
     }
@@ -48,14 +90,17 @@ public class CardService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с id не найден: " + userId));
 
-        if (cardRepository.existsByCardNumber(encryptionUtils.encrypt(cardDTO.getCardNumber()))) {
+        String cardFingerprint = encryptionUtils.fingerprint(cardDTO.getCardNumber());
+        if (cardRepository.existsByCardFingerprint(cardFingerprint)) {
             throw new CardAlreadyExistsException("Карта с этим номером уже существует");
         }
 
         Card card = new Card();
         card.setCardNumber(encryptionUtils.encrypt(cardDTO.getCardNumber()));
+        card.setCardFingerprint(cardFingerprint);
+        card.setCardLastFour(CardMasker.lastFour(cardDTO.getCardNumber()));
         card.setCardHolder(cardDTO.getCardHolder());
-        card.setExpiryDate(cardDTO.getExpiryDate());
+        card.setExpiresOn(parseExpiryDate(cardDTO.getExpiryDate()));
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(BigDecimal.ZERO);
         card.setUser(user);
@@ -73,37 +118,43 @@ public class CardService {
         return convertToDTO(savedCard);
     }
 
+    @Transactional(readOnly = true)
     public Page<CardDTO> getUserCards(UserDetails userDetails, Pageable pageable) {
-        User user = getUserByUsername(userDetails.getUsername());
-        return cardRepository.findAllByUser(user, pageable)
+        Long userId = getUserId(userDetails.getUsername());
+        return cardRepository.findViewsByUserId(userId, pageable)
                 .map(this::convertToDTO);
     }
 
+    @Transactional(readOnly = true)
     public List<CardDTO> getAllUserCards(UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        return cardRepository.findAllByUser(user).stream()
+        Long userId = getUserId(userDetails.getUsername());
+        return cardRepository.findViewsByUserId(userId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public CardDTO getCardById(Long id, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(id, user)
+        Long userId = getUserId(userDetails.getUsername());
+        CardView card = cardRepository.findViewByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
         return convertToDTO(card);
     }
 
     public CardDTO createCard(CardDTO cardDTO, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
+        User user = userRepository.getReferenceById(getUserId(userDetails.getUsername()));
 
-        if (cardRepository.existsByCardNumber(encryptionUtils.encrypt(cardDTO.getCardNumber()))) {
+        String cardFingerprint = encryptionUtils.fingerprint(cardDTO.getCardNumber());
+        if (cardRepository.existsByCardFingerprint(cardFingerprint)) {
             throw new CardAlreadyExistsException("Карта с этим номером уже существует");
         }
 
         Card card = new Card();
         card.setCardNumber(encryptionUtils.encrypt(cardDTO.getCardNumber()));
+        card.setCardFingerprint(cardFingerprint);
+        card.setCardLastFour(CardMasker.lastFour(cardDTO.getCardNumber()));
         card.setCardHolder(cardDTO.getCardHolder());
-        card.setExpiryDate(cardDTO.getExpiryDate());
+        card.setExpiresOn(parseExpiryDate(cardDTO.getExpiryDate()));
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(BigDecimal.ZERO);
         card.setUser(user);
@@ -114,32 +165,12 @@ public class CardService {
 
     @Transactional
     public void transferBetweenCards(TransferDTO transferDTO, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-
-        Card fromCard = cardRepository.findByIdAndUser(transferDTO.getFromCardId(), user)
-                .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + transferDTO.getFromCardId()));
-
-        Card toCard = cardRepository.findByIdAndUser(transferDTO.getToCardId(), user)
-                .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + transferDTO.getToCardId()));
-
-        if (fromCard.getStatus() != CardStatus.ACTIVE || toCard.getStatus() != CardStatus.ACTIVE) {
-            throw new CardNotActiveException("Одна или обе карты не активны");
-        }
-
-        if (fromCard.getBalance().compareTo(transferDTO.getAmount()) < 0) {
-            throw new InsufficientFundsException("Недостаточно средств на исходной карте");
-        }
-
-        fromCard.setBalance(fromCard.getBalance().subtract(transferDTO.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(transferDTO.getAmount()));
-
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        transferBetweenUserCards(transferDTO, userDetails);
     }
 
     public CardDTO blockCard(Long id, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(id, user)
+        Long userId = getUserId(userDetails.getUsername());
+        Card card = cardRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
 
         if (card.getStatus() == CardStatus.BLOCKED) {
@@ -151,127 +182,88 @@ public class CardService {
         return convertToDTO(savedCard);
     }
 
+    // Исход операции попадает в строку журнала запроса и в метрику card.service, отдельные записи не нужны
     public CardDTO activateCard(Long id, UserDetails userDetails) {
-        try {
-            log.info("Попытка активировать id карты: {} пользователя: {}", id, userDetails.getUsername());
-
-            User user = getUserByUsername(userDetails.getUsername());
-            log.info("Пользователь найден: {}", user.getId());
-
-            Card card = cardRepository.findByIdAndUser(id, user)
-                    .orElseThrow(() -> {
-                        log.error("Не найдена карточка с id: {} для пользователя: {}", id, user.getUsername());
-                        return new ResourceNotFoundException("Карта с id не найдена: " + id);
-                    });
-
-            log.info("Текущий статус карты: {}", card.getStatus());
-            log.info("Дата истечения срока действия карты: {}", card.getExpiryDate());
-
-            if (card.getStatus() == CardStatus.ACTIVE) {
-                log.warn("Карта уже активна");
-                throw new CardOperationException("Карта уже активна");
-            }
+        Long userId = getUserId(userDetails.getUsername());
+        Card card = cardRepository.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
 
-            if (isCardExpired(card.getExpiryDate())) {
-                log.warn("Срок действия карты истек: {}", card.getExpiryDate());
-                throw new CardOperationException("Не удается активировать карту с истекшим сроком действия");
-            }
+        if (card.getStatus() == CardStatus.ACTIVE) {
+            throw new CardOperationException("Карта уже активна");
+        }
 
-            card.setStatus(CardStatus.ACTIVE);
-            Card savedCard = cardRepository.save(card);
-            log.info("Карта успешно активирована");
-            return convertToDTO(savedCard);
-        } catch (Exception e) {
-            log.error("Ошибка при активации карты: {}", e.getMessage(), e);
-            throw e;
+        if (isCardExpired(card)) {
+            throw new CardOperationException("Не удается активировать карту с истекшим сроком действия");
         }
+
+        card.setStatus(CardStatus.ACTIVE);
+        Card savedCard = cardRepository.save(card);
+        log.debug("Карта {} активирована", id);
+        return convertToDTO(savedCard);
     }
 
     public void deleteCard(Long id, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(id, user)
+        Long userId = getUserId(userDetails.getUsername());
+        Card card = cardRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
         cardRepository.delete(card);
     }
 
-    private User getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
+    // Id пользователя из кэша, без запроса к таблице users
+    private Long getUserId(String username) {
+        return userPrincipalCache.findByUsername(username)
+                .map(UserPrincipalCache.CachedUser::id)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с именем пользователя не найден: " + username));
     }
 
     private CardDTO convertToDTO(Card card) {
         CardDTO dto = new CardDTO();
         dto.setId(card.getId());
-        dto.setCardNumber(CardMasker.maskCardNumber(encryptionUtils.decrypt(card.getCardNumber())));
+        dto.setCardNumber(CardMasker.maskLastFour(card.getCardLastFour()));
         dto.setCardHolder(card.getCardHolder());
-        dto.setExpiryDate(card.getExpiryDate());
+        dto.setExpiryDate(CardExpiry.format(card.getExpiresOn()));
         dto.setStatus(card.getStatus());
         dto.setBalance(card.getBalance());
         return dto;
     }
 
-    private boolean isCardExpired(String expiryDate) {
-        try {
-            // Разделяем строку на месяц и год
-            String[] parts = expiryDate.split("/");
-            if (parts.length != 2) {
-                throw new CardOperationException("Неверный формат даты истечения срока действия. Ожидаемый срок годности, ММ/гг");
-            }
+    private CardDTO convertToDTO(CardView card) {
+        CardDTO dto = new CardDTO();
+        dto.setId(card.id());
+        dto.setCardNumber(CardMasker.maskLastFour(card.cardLastFour()));
+        dto.setCardHolder(card.cardHolder());
+        dto.setExpiryDate(CardExpiry.format(card.expiresOn()));
+        dto.setStatus(card.status());
+        dto.setBalance(card.balance());
+        return dto;
+    }
 
-            int month = Integer.parseInt(parts[0]);
-            int year = Integer.parseInt(parts[1]) + 2000; // Преобразуем 2-значный год в 4-значный
+    private boolean isCardExpired(Card card) {
+        return card.getExpiresOn().isBefore(LocalDate.now());
+    }
 
-            // Получаем последний день месяца
-            LocalDate expiry = LocalDate.of(year, month, 1).plusMonths(1).minusDays(1);
-            return expiry.isBefore(LocalDate.now());
-        } catch (NumberFormatException e) {
-            throw new CardOperationException("Недопустимый формат даты истечения срока действия", e);
+    // Строка "MM/yy" из запроса разбирается один раз при выпуске карты
+    private LocalDate parseExpiryDate(String expiryDate) {
+        if (expiryDate == null) {
+            throw new CardOperationException("Не указан срок действия карты");
+        }
+        try {
+            return CardExpiry.lastDay(expiryDate);
+        } catch (DateTimeParseException e) {
+            throw new CardOperationException("Недопустимый формат даты истечения срока действия. Ожидаемый формат: ММ/гг", e);
         }
     }
 
     @Transactional
-    public CardDTO topUpCard(TopUpDTO topUpDTO, UserDetails userDetails) {
-        log.info("Начало пополнения счета для идентификатора карты: {}, суммы: {}, пользователя: {}",
-                topUpDTO.getCardId(), topUpDTO.getAmount(), userDetails.getUsername());
-
-        try {
-            User user = getUserByUsername(userDetails.getUsername());
-            log.info("Пользователь найден: {}", user.getId());
-
-            Card card = cardRepository.findByIdAndUser(topUpDTO.getCardId(), user)
-                    .orElseThrow(() -> {
-                        log.error("Карта не найдена: {}", topUpDTO.getCardId());
-                        return new ResourceNotFoundException("Карта с id не найдена: " + topUpDTO.getCardId());
-                    });
-
-            log.info("Найдена карта: {}, текущий баланс: {}", card.getId(), card.getBalance());
-
-            if (card.getStatus() != CardStatus.ACTIVE) {
-                log.warn("Карта не активна: {}", card.getStatus());
-                throw new CardNotActiveException("Невозможно пополнить счет с неактивной карты");
-            }
-
-            if (topUpDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-                log.warn("Недопустимая сумма: {}", topUpDTO.getAmount());
-                throw new CardOperationException("Сумма должна быть положительной");
-            }
-
-            card.setBalance(card.getBalance().add(topUpDTO.getAmount()));
-            Card savedCard = cardRepository.save(card);
-            log.info("Успешное пополнение счета, новый баланс: {}", savedCard.getBalance());
-
-            return convertToDTO(savedCard);
-        } catch (Exception e) {
-            log.error("Ошибка при пополнении счета", e);
-            throw e;
-        }
+    public TopUpResultDTO topUpCard(TopUpDTO topUpDTO, UserDetails userDetails) {
+        return topUpUserCard(topUpDTO, userDetails);
     }
 
     public CardDTO adminActivateCard(Long id) {
         Card card = cardRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с идентификатором не найдена: " + id));
 
-        if (isCardExpired(card.getExpiryDate())) {
+        if (isCardExpired(card)) {
             throw new CardOperationException("Не удается активировать карту с истекшим сроком действия");
         }
 
@@ -288,27 +280,42 @@ public class CardService {
     }
 
     // Новые методы для пользователя
+    @Transactional(readOnly = true)
     public CardDTO getUserCardById(Long id, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(id, user)
-                .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
-        return convertToDTO(card);
+        return getCardById(id, userDetails);
     }
 
     @Transactional
     public void transferBetweenUserCards(TransferDTO transferDTO, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
+        if (transferDTO.getAmount() == null || transferDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new CardOperationException("Сумма должна быть положительной");
+        }
 
-        Card fromCard = cardRepository.findByIdAndUser(transferDTO.getFromCardId(), user)
+        if (Objects.equals(transferDTO.getFromCardId(), transferDTO.getToCardId())) {
+            throw new CardOperationException("Нельзя перевести средства на ту же карту");
+        }
+
+        Long userId = getUserId(userDetails.getUsername());
+
+        Map<Long, Card> cards = cardRepository.findAllByIdInAndUserIdForUpdate(
+                        List.of(transferDTO.getFromCardId(), transferDTO.getToCardId()), userId).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        Card fromCard = Optional.ofNullable(cards.get(transferDTO.getFromCardId()))
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + transferDTO.getFromCardId()));
 
-        Card toCard = cardRepository.findByIdAndUser(transferDTO.getToCardId(), user)
+        Card toCard = Optional.ofNullable(cards.get(transferDTO.getToCardId()))
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + transferDTO.getToCardId()));
 
         if (fromCard.getStatus() != CardStatus.ACTIVE || toCard.getStatus() != CardStatus.ACTIVE) {
             throw new CardNotActiveException("Одна или обе карты не активны");
         }
 
+        // Просроченная карта может оставаться ACTIVE до прохода CardExpiryService
+        if (isCardExpired(fromCard) || isCardExpired(toCard)) {
+            throw new CardNotActiveException("Срок действия одной или обеих карт истек");
+        }
+
         if (fromCard.getBalance().compareTo(transferDTO.getAmount()) < 0) {
             throw new InsufficientFundsException("Недостаточно средств на исходной карте");
         }
@@ -318,34 +325,169 @@ public class CardService {
 
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
+
+        List<CardTransaction> ledger = new ArrayList<>(2);
+        addTransferLedgerRows(ledger, fromCard, toCard, transferDTO.getAmount(), LocalDateTime.now());
+        cardTransactionRepository.appendAll(ledger);
+    }
+
+    // Пакет переводов в одной транзакции: все карты читаются и блокируются одним запросом в порядке id,
+    // переводы применяются по очереди к балансам в памяти, в БД уходит итоговый баланс каждой карты
+    @Transactional
+    public BatchTransferResultDTO transferBatch(BatchTransferDTO batchDTO, UserDetails userDetails) {
+        List<TransferDTO> transfers = batchDTO.getTransfers();
+        if (transfers == null || transfers.isEmpty()) {
+            throw new CardOperationException("Пакет переводов пуст");
+        }
+        if (transfers.size() > MAX_BATCH_TRANSFERS) {
+            throw new CardOperationException("В пакете не может быть больше " + MAX_BATCH_TRANSFERS + " переводов");
+        }
+        boolean allOrNothing = batchDTO.getMode() != BatchTransferDTO.Mode.BEST_EFFORT;
+
+        Long userId = getUserId(userDetails.getUsername());
+        Set<Long> cardIds = new HashSet<>();
+        for (TransferDTO transfer : transfers) {
+            if (transfer.getFromCardId() != null) {
+                cardIds.add(transfer.getFromCardId());
+            }
+            if (transfer.getToCardId() != null) {
+                cardIds.add(transfer.getToCardId());
+            }
+        }
+        Map<Long, Card> cards = cardIds.isEmpty()
+                ? Map.of()
+                : cardRepository.findAllByIdInAndUserIdForUpdate(cardIds, userId).stream()
+                        .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        List<BatchTransferResultDTO.Item> results = new ArrayList<>(transfers.size());
+        List<CardTransaction> ledger = new ArrayList<>(transfers.size() * 2);
+        LocalDateTime now = LocalDateTime.now();
+        int applied = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transfer = transfers.get(i);
+            RuntimeException failure = checkTransfer(transfer, cards, allOrNothing ? "Перевод #" + i + ": " : "");
+            if (failure != null) {
+                if (allOrNothing) {
+                    throw failure;
+                }
+                results.add(new BatchTransferResultDTO.Item(i, BatchTransferResultDTO.Status.REJECTED, failure.getMessage()));
+                continue;
+            }
+
+            Card fromCard = cards.get(transfer.getFromCardId());
+            Card toCard = cards.get(transfer.getToCardId());
+            fromCard.setBalance(fromCard.getBalance().subtract(transfer.getAmount()));
+            toCard.setBalance(toCard.getBalance().add(transfer.getAmount()));
+            addTransferLedgerRows(ledger, fromCard, toCard, transfer.getAmount(), now);
+            results.add(new BatchTransferResultDTO.Item(i, BatchTransferResultDTO.Status.APPLIED, null));
+            applied++;
+        }
+
+        // Изменения балансов сбрасываются при фиксации пакетными UPDATE (hibernate.jdbc.batch_size)
+        cardTransactionRepository.appendAll(ledger);
+        log.debug("Пакет переводов пользователя {}: выполнено {}, отклонено {}",
+                userDetails.getUsername(), applied, transfers.size() - applied);
+        return new BatchTransferResultDTO(applied, transfers.size() - applied, results);
+    }
+
+    // Проверки одного перевода в пакете; null — перевод можно выполнить
+    private RuntimeException checkTransfer(TransferDTO transfer, Map<Long, Card> cards, String prefix) {
+        if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return new CardOperationException(prefix + "Сумма должна быть положительной");
+        }
+        if (Objects.equals(transfer.getFromCardId(), transfer.getToCardId())) {
+            return new CardOperationException(prefix + "Нельзя перевести средства на ту же карту");
+        }
+        Card fromCard = cards.get(transfer.getFromCardId());
+        if (fromCard == null) {
+            return new ResourceNotFoundException(prefix + "Карта с id не найдена: " + transfer.getFromCardId());
+        }
+        Card toCard = cards.get(transfer.getToCardId());
+        if (toCard == null) {
+            return new ResourceNotFoundException(prefix + "Карта с id не найдена: " + transfer.getToCardId());
+        }
+        if (fromCard.getStatus() != CardStatus.ACTIVE || toCard.getStatus() != CardStatus.ACTIVE) {
+            return new CardNotActiveException(prefix + "Одна или обе карты не активны");
+        }
+        if (isCardExpired(fromCard) || isCardExpired(toCard)) {
+            return new CardNotActiveException(prefix + "Срок действия одной или обеих карт истек");
+        }
+        if (fromCard.getBalance().compareTo(transfer.getAmount()) < 0) {
+            return new InsufficientFundsException(prefix + "Недостаточно средств на исходной карте");
+        }
+        return null;
+    }
+
+    private void addTransferLedgerRows(List<CardTransaction> ledger, Card fromCard, Card toCard,
+                                       BigDecimal amount, LocalDateTime now) {
+        UUID operationId = UUID.randomUUID();
+        ledger.add(new CardTransaction(null, operationId, fromCard.getId(), toCard.getId(),
+                CardTransactionType.TRANSFER_DEBIT, amount.negate(), fromCard.getBalance(), now));
+        ledger.add(new CardTransaction(null, operationId, toCard.getId(), fromCard.getId(),
+                CardTransactionType.TRANSFER_CREDIT, amount, toCard.getBalance(), now));
+    }
+
+    @Transactional(readOnly = true)
+    public CardTransactionPageDTO getCardTransactions(Long id, LocalDateTime beforeCreatedAt, Long beforeId,
+                                                      int size, UserDetails userDetails) {
+        Long userId = getUserId(userDetails.getUsername());
+        if (!cardRepository.existsByIdAndUserId(id, userId)) {
+            throw new ResourceNotFoundException("Карта с id не найдена: " + id);
+        }
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_TRANSACTIONS_PAGE_SIZE);
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<CardTransactionDTO> transactions = beforeCreatedAt == null || beforeId == null
+                ? cardTransactionRepository.findLatestByCardId(id, PageRequest.ofSize(pageSize + 1))
+                : cardTransactionRepository.findByCardIdBefore(id, beforeCreatedAt, beforeId,
+                        PageRequest.ofSize(pageSize + 1));
+
+        if (transactions.size() <= pageSize) {
+            return new CardTransactionPageDTO(transactions, null, null);
+        }
+        List<CardTransactionDTO> page = transactions.subList(0, pageSize);
+        CardTransactionDTO last = page.get(pageSize - 1);
+        return new CardTransactionPageDTO(page, last.getCreatedAt(), last.getId());
     }
 
     public void requestBlockCard(Long id, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(id, user)
+        Long userId = getUserId(userDetails.getUsername());
+        Card card = cardRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + id));
 
         // Здесь можно добавить логику отправки запроса на блокировку
         // Например, отправить уведомление администратору
-        log.info("Пользователь {} запросил заблокировать карту {}", user.getUsername(), id);
+        log.debug("Пользователь {} запросил заблокировать карту {}", userDetails.getUsername(), id);
     }
 
     @Transactional
-    public CardDTO topUpUserCard(TopUpDTO topUpDTO, UserDetails userDetails) {
-        User user = getUserByUsername(userDetails.getUsername());
-        Card card = cardRepository.findByIdAndUser(topUpDTO.getCardId(), user)
-                .orElseThrow(() -> new ResourceNotFoundException("Карта с id не найдена: " + topUpDTO.getCardId()));
-
-        if (card.getStatus() != CardStatus.ACTIVE) {
-            throw new CardNotActiveException("Невозможно пополнить счет с неактивной карты");
-        }
-
-        if (topUpDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+    public TopUpResultDTO topUpUserCard(TopUpDTO topUpDTO, UserDetails userDetails) {
+        if (topUpDTO.getAmount() == null || topUpDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
             throw new CardOperationException("Сумма должна быть положительной");
         }
 
-        card.setBalance(card.getBalance().add(topUpDTO.getAmount()));
-        Card savedCard = cardRepository.save(card);
-        return convertToDTO(savedCard);
+        Long userId = getUserId(userDetails.getUsername());
+        BigDecimal balance = cardRepository
+                .topUpActiveCard(topUpDTO.getCardId(), userId, topUpDTO.getAmount(), LocalDate.now())
+                .orElseThrow(() -> topUpFailure(topUpDTO.getCardId(), userId));
+
+        // Встречная проводка списывает сумму с внешнего счета, операция в журнале сходится в ноль
+        UUID operationId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        cardTransactionRepository.appendAll(List.of(
+                new CardTransaction(null, operationId, topUpDTO.getCardId(), null, CardTransactionType.TOP_UP,
+                        topUpDTO.getAmount(), balance, now),
+                new CardTransaction(null, operationId, CardTransaction.EXTERNAL_ACCOUNT_ID, topUpDTO.getCardId(),
+                        CardTransactionType.TOP_UP, topUpDTO.getAmount().negate(), null, now)
+        ));
+        return new TopUpResultDTO(topUpDTO.getCardId(), balance);
+    }
+
+    // Строка не обновлена: отличаем отсутствующую карту от неактивной
+    private RuntimeException topUpFailure(Long cardId, Long userId) {
+        if (cardRepository.existsByIdAndUserId(cardId, userId)) {
+            return new CardNotActiveException("Невозможно пополнить счет с неактивной карты");
+        }
+        return new ResourceNotFoundException("Карта с id не найдена: " + cardId);
     }
 }
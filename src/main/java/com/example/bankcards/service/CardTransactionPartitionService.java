@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+// Заранее создает месячные секции журнала card_transactions (PostgreSQL). Секции по умолчанию нет,
+// поэтому запись за месяц без секции завершится ошибкой: секции создаются на months-ahead месяцев вперед.
+// Одновременные CREATE TABLE ... PARTITION OF с разных узлов исключает блокировка в scheduler_locks
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.ledger.partition-maintenance.enabled", havingValue = "true", matchIfMissing = true)
+public class CardTransactionPartitionService {
+    static final String LOCK_NAME = "card-transaction-partitions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final int monthsAhead;
+    private final Duration lockLease;
+
+    public CardTransactionPartitionService(JdbcTemplate jdbcTemplate,
+                                           SchedulerLockService schedulerLockService,
+                                           @Value("${app.ledger.partition-maintenance.months-ahead:2}") int monthsAhead,
+                                           @Value("${app.ledger.partition-maintenance.lock-lease:5m}") Duration lockLease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schedulerLockService = schedulerLockService;
+        this.monthsAhead = monthsAhead;
+        this.lockLease = lockLease;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.ledger.partition-maintenance.cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        if (!schedulerLockService.tryLock(LOCK_NAME, lockLease)) {
+            log.debug("Секции журнала операций уже создаются на другом узле");
+            return;
+        }
+        try {
+            LocalDate month = LocalDate.now().withDayOfMonth(1);
+            for (int i = 0; i <= monthsAhead; i++) {
+                try {
+                    jdbcTemplate.queryForList("SELECT create_card_transactions_partition(?)", month.plusMonths(i));
+                } catch (DataAccessException e) {
+                    // Остальные месяцы все равно пробуем создать
+                    log.warn("Не удалось создать секцию журнала операций за {}: {}", month.plusMonths(i), e.getMessage());
+                }
+            }
+        } finally {
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+    }
+}
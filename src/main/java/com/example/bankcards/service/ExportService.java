@@ -0,0 +1,203 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.UserExportRow;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardExpiry;
+import com.example.bankcards.util.CardMasker;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Выгрузка карт и пользователей потоком прямо в ответ. Строки читаются курсором,
+// поэтому объем памяти не зависит от числа выгружаемых записей
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    // Как часто отсоединять уже выгруженные карты (совпадает с fetch size курсора)
+    private static final int CLEAR_INTERVAL = 500;
+
+    private static final String CARDS_CSV_HEADER = "id,userId,cardNumber,cardHolder,expiryDate,status,balance,createdAt";
+    private static final String USERS_CSV_HEADER = "id,username,email,roles,createdAt";
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long exportCards(ExportFormat format, OutputStream output) throws IOException {
+        long count = 0;
+        try (Stream<Card> cards = cardRepository.streamAll();
+             Writer writer = writer(output)) {
+            RowWriter rows = rowWriter(format, writer, CARDS_CSV_HEADER);
+            Iterator<Card> iterator = cards.iterator();
+            while (iterator.hasNext()) {
+                Card card = iterator.next();
+                // Номер карты выгружается только в маскированном виде
+                rows.write(card.getId(), card.getUser().getId(), CardMasker.maskLastFour(card.getCardLastFour()),
+                        card.getCardHolder(), CardExpiry.format(card.getExpiresOn()), card.getStatus().name(),
+                        card.getBalance().toPlainString(), card.getCreatedAt());
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+            rows.finish();
+        }
+        log.debug("Выгружено карт: {}", count);
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportUsers(ExportFormat format, OutputStream output) throws IOException {
+        long count = 0;
+        try (Stream<UserExportRow> users = userRepository.streamAllForExport();
+             Writer writer = writer(output)) {
+            RowWriter rows = rowWriter(format, writer, USERS_CSV_HEADER);
+            Iterator<UserExportRow> iterator = users.iterator();
+            UserExportRow current = null;
+            List<String> roles = new ArrayList<>();
+            // Строки одного пользователя идут подряд (ORDER BY u.id), роли собираются до смены id
+            while (iterator.hasNext()) {
+                UserExportRow row = iterator.next();
+                if (current != null && !current.id().equals(row.id())) {
+                    writeUser(rows, current, roles);
+                    roles.clear();
+                    count++;
+                }
+                current = row;
+                if (row.role() != null) {
+                    roles.add(row.role());
+                }
+            }
+            if (current != null) {
+                writeUser(rows, current, roles);
+                count++;
+            }
+            rows.finish();
+        }
+        log.debug("Выгружено пользователей: {}", count);
+        return count;
+    }
+
+    private void writeUser(RowWriter rows, UserExportRow user, List<String> roles) throws IOException {
+        rows.write(user.id(), user.username(), user.email(), roles, user.createdAt());
+    }
+
+    private Writer writer(OutputStream output) {
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    private RowWriter rowWriter(ExportFormat format, Writer writer, String csvHeader) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer), csvHeader.split(","));
+            case CSV -> new CsvRowWriter(writer, csvHeader);
+        };
+    }
+
+    private interface RowWriter {
+        void write(Object... values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final String[] fields;
+
+        NdjsonRowWriter(JsonGenerator generator, String[] fields) {
+            this.generator = generator;
+            this.fields = fields;
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < fields.length; i++) {
+                generator.writeFieldName(fields[i]);
+                writeValue(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Long number) {
+                generator.writeNumber(number);
+            } else if (value instanceof List<?> list) {
+                generator.writeStartArray();
+                for (Object item : list) {
+                    generator.writeString(item.toString());
+                }
+                generator.writeEndArray();
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer, String header) throws IOException {
+            this.writer = writer;
+            writer.write(header);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write('\n');
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value instanceof List<?> list
+                    ? String.join(";", list.stream().map(Object::toString).toList())
+                    : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
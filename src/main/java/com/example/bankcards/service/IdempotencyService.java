@@ -0,0 +1,121 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.IdempotencyKeyException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+// Выполняет денежную операцию не более одного раза на пару (пользователь, Idempotency-Key).
+// Ключ занимается в той же транзакции, что и сама операция, вместе с ней фиксируется ответ.
+// Повтор, пришедший во время выполнения, ждет на уникальном индексе и получает сохраненный ответ;
+// если первая попытка откатилась, повтор выполняет операцию сам
+@Slf4j
+@Service
+public class IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl:24h}") Duration ttl) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    public <T> T execute(String key, String username, String operation, Object request,
+                         Class<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("Idempotency-Key должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+        }
+
+        String requestHash = hash(operation, request);
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!claim(username, key, requestHash, now)) {
+                return replay(key, username, requestHash, responseType);
+            }
+            T response = action.get();
+            idempotencyRecordRepository.saveResponse(username, key, write(response));
+            return response;
+        });
+    }
+
+    @Scheduled(cron = "${app.idempotency.cleanup-cron:0 15 * * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Удалено просроченных ключей идемпотентности: {}", deleted);
+    }
+
+    // Ключ с истекшим сроком считается свободным: запись удаляется и ключ занимается заново под тем же
+    // ON CONFLICT. Если параллельный запрос успел занять его первым, delete или повторная вставка вернут 0
+    private boolean claim(String username, String key, String requestHash, LocalDateTime now) {
+        if (idempotencyRecordRepository.insertIfAbsent(username, key, requestHash, now, now.plus(ttl)) == 1) {
+            return true;
+        }
+        return idempotencyRecordRepository.deleteIfExpired(username, key, now) == 1
+                && idempotencyRecordRepository.insertIfAbsent(username, key, requestHash, now, now.plus(ttl)) == 1;
+    }
+
+    private <T> T replay(String key, String username, String requestHash, Class<T> responseType) {
+        IdempotencyRecord record = idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, key)
+                .orElseThrow(() -> new IdempotencyKeyException("Ключ идемпотентности не найден: " + key));
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException("Idempotency-Key уже использован для другого запроса");
+        }
+        return read(record.getResponseBody(), responseType);
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось вычислить хэш запроса", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return response == null ? null : objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ", e);
+        }
+    }
+
+    private <T> T read(String responseBody, Class<T> responseType) {
+        try {
+            return responseBody == null ? null : objectMapper.readValue(responseBody, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохраненный ответ", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.security.CustomUserDetailsService;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.UserPrincipalCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Refresh-токены: случайная строка, в БД хранится только ее HMAC. Обновление — HMAC и одно чтение
+// по уникальному индексу вместо проверки пароля. Каждый токен одноразовый: при обновлении он отзывается
+// и выдается следующий в той же цепочке (family_id). Предъявление уже отозванного токена означает,
+// что им воспользовался кто-то еще, поэтому цепочка отзывается целиком
+@Slf4j
+@Service
+public class RefreshTokenService {
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_BYTES = 32;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 4;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final CustomUserDetailsService userDetailsService;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final SecretKeySpec hashKey;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+    private final BlockingQueue<Mac> macs = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserPrincipalCache userPrincipalCache,
+                               CustomUserDetailsService userDetailsService,
+                               JwtTokenProvider jwtTokenProvider,
+                               @Value("${app.jwt.refresh.hash-key}") String hashKey,
+                               @Value("${app.jwt.refresh.ttl:14d}") Duration ttl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.userDetailsService = userDetailsService;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.hashKey = new SecretKeySpec(hashKey.getBytes(StandardCharsets.UTF_8), HASH_ALGORITHM);
+        this.ttl = ttl;
+    }
+
+    // Первый токен новой цепочки, выдается при входе по паролю
+    @Transactional
+    public String issue(String username) {
+        Long userId = userPrincipalCache.findByUsername(username)
+                .map(UserPrincipalCache.CachedUser::id)
+                .orElseThrow(() -> new BadCredentialsException("Пользователь не найден: " + username));
+        return issue(userId, username, UUID.randomUUID().toString(), LocalDateTime.now());
+    }
+
+    // При отказе из-за повторного использования отзыв цепочки должен быть зафиксирован
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthResponse refresh(String token) {
+        RefreshToken current = find(token);
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getRevokedAt() == null && current.getExpiresAt().isBefore(now)) {
+            throw new BadCredentialsException("Срок действия refresh-токена истек");
+        }
+        if (current.getRevokedAt() != null || refreshTokenRepository.revoke(current.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            log.warn("Повторное использование refresh-токена пользователя {}, отозвано токенов: {}",
+                    current.getUsername(), revoked);
+            throw new BadCredentialsException("Недействительный refresh-токен");
+        }
+
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(current.getUsername());
+        } catch (UsernameNotFoundException e) {
+            throw new BadCredentialsException("Недействительный refresh-токен");
+        }
+        String refreshToken = issue(current.getUserId(), current.getUsername(), current.getFamilyId(), now);
+        return new AuthResponse(jwtTokenProvider.generateToken(userDetails), refreshToken);
+    }
+
+    // Выход: отзывается вся цепочка, к которой относится токен. Неизвестный токен игнорируется
+    @Transactional
+    public void revoke(String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(current -> refreshTokenRepository.revokeFamily(current.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh.cleanup-cron:0 45 * * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Удалено просроченных refresh-токенов: {}", deleted);
+    }
+
+    private RefreshToken find(String token) {
+        if (token == null || token.isBlank()) {
+            throw new BadCredentialsException("Не передан refresh-токен");
+        }
+        return refreshTokenRepository.findByTokenHash(hash(token))
+                .orElseThrow(() -> new BadCredentialsException("Недействительный refresh-токен"));
+    }
+
+    private String issue(Long userId, String username, String familyId, LocalDateTime now) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(userId);
+        refreshToken.setUsername(username);
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setCreatedAt(now);
+        refreshToken.setExpiresAt(now.plus(ttl));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    private String hash(String token) {
+        try {
+            Mac mac = macs.poll();
+            if (mac == null) {
+                mac = Mac.getInstance(HASH_ALGORITHM);
+                mac.init(hashKey);
+            }
+            byte[] digest = mac.doFinal(token.getBytes(StandardCharsets.UTF_8));
+            macs.offer(mac);
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при вычислении хеша refresh-токена", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Блокировка периодической задачи между узлами на строке scheduler_locks. Захват — условный UPDATE,
+// поэтому соединение не держится на время работы задачи. Если узел упал, не сняв блокировку,
+// ее забирает другой узел после истечения аренды
+@Service
+public class SchedulerLockService {
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public SchedulerLockService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = hostName() + "/" + UUID.randomUUID();
+    }
+
+    public boolean tryLock(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(
+                "UPDATE scheduler_locks SET locked_until = ?, locked_by = ? WHERE name = ? AND locked_until <= ?",
+                Timestamp.valueOf(now.plus(lease)), nodeId, name, Timestamp.valueOf(now)) == 1;
+    }
+
+    // Продление аренды перед следующей частью работы. false — блокировка уже у другого узла
+    public boolean extend(String name, Duration lease) {
+        return jdbcTemplate.update(
+                "UPDATE scheduler_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.valueOf(LocalDateTime.now().plus(lease)), name, nodeId) == 1;
+    }
+
+    public void unlock(String name) {
+        jdbcTemplate.update("UPDATE scheduler_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.valueOf(LocalDateTime.now()), name, nodeId);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
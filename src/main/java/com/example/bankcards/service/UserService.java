@@ -3,6 +3,7 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -32,5 +34,6 @@ public class UserService {
             throw new ResourceNotFoundException("Пользователь с id не найден: " + id);
         }
         userRepository.deleteById(id);
+        userPrincipalCache.evictById(id);
     }
 }
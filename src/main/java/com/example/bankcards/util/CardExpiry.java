@@ -0,0 +1,22 @@
+package com.example.bankcards.util;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+// Срок действия хранится датой последнего дня (cards.expires_on), строка "MM/yy" существует только в DTO
+public class CardExpiry {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("MM/yy");
+
+    // Последний день действия карты со сроком "MM/yy" (карта действует до конца месяца)
+    public static LocalDate lastDay(String expiryDate) {
+        if (expiryDate == null) {
+            return null;
+        }
+        return YearMonth.parse(expiryDate, FORMAT).atEndOfMonth();
+    }
+
+    public static String format(LocalDate expiresOn) {
+        return expiresOn == null ? null : FORMAT.format(expiresOn);
+    }
+}
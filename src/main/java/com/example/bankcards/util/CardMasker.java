@@ -5,7 +5,14 @@ public class CardMasker {
         if (cardNumber == null || cardNumber.length() < 12) {
             return cardNumber;
         }
-        String lastFour = cardNumber.substring(cardNumber.length() - 4);
+        return maskLastFour(lastFour(cardNumber));
+    }
+
+    public static String maskLastFour(String lastFour) {
         return "**** **** **** " + lastFour;
     }
+
+    public static String lastFour(String cardNumber) {
+        return cardNumber.substring(Math.max(0, cardNumber.length() - 4));
+    }
 }
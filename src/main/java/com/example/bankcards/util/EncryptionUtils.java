@@ -1,50 +1,157 @@
 package com.example.bankcards.util;
 
-import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
-@Slf4j
 @Component
 public class EncryptionUtils {
-    @Value("${app.encryption.secret-key}")
-    private String secretKey;
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 4;
 
-    @Value("${app.encryption.salt}")
-    private String salt;
+    private final SecretKeySpec encryptionKey;
+    private final SecretKeySpec fingerprintKey;
+
+    // Инициализированные экземпляры переиспользуются: после doFinal шифр возвращается
+    // в состояние сразу после init, поэтому повторная инициализация не нужна
+    private final BlockingQueue<Cipher> encryptCiphers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Cipher> decryptCiphers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Mac> fingerprintMacs = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final Timer encryptTimer;
+    private final Timer decryptTimer;
+    private final Timer decryptAllTimer;
+    private final Timer fingerprintTimer;
+
+    // Экземпляры вне контекста Spring (миграции, бенчмарки) метрики не публикуют
+    public EncryptionUtils(String secretKey, String salt, String fingerprintKey) {
+        this(secretKey, salt, fingerprintKey, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public EncryptionUtils(@Value("${app.encryption.secret-key}") String secretKey,
+                           @Value("${app.encryption.salt}") String salt,
+                           @Value("${app.encryption.fingerprint-key}") String fingerprintKey,
+                           MeterRegistry meterRegistry) {
+        this.encryptionKey = generateKey(secretKey, salt);
+        this.fingerprintKey = new SecretKeySpec(fingerprintKey.getBytes(StandardCharsets.UTF_8), FINGERPRINT_ALGORITHM);
+        this.encryptTimer = timer(meterRegistry, "encrypt");
+        this.decryptTimer = timer(meterRegistry, "decrypt");
+        this.decryptAllTimer = timer(meterRegistry, "decrypt_all");
+        this.fingerprintTimer = timer(meterRegistry, "fingerprint");
+    }
 
     public String encrypt(String data) {
+        long start = System.nanoTime();
         try {
-            log.info("Шифрование данных, длина: {}", data.length());
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, key);
+            Cipher cipher = borrowCipher(encryptCiphers, Cipher.ENCRYPT_MODE);
             byte[] encryptedBytes = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            encryptCiphers.offer(cipher);
             return Base64.getEncoder().encodeToString(encryptedBytes);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при шифровании данных", e);
+        } finally {
+            encryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
     public String decrypt(String encryptedData) {
+        long start = System.nanoTime();
         try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            byte[] decodedBytes = Base64.getDecoder().decode(encryptedData);
-            byte[] decryptedBytes = cipher.doFinal(decodedBytes);
+            Cipher cipher = borrowCipher(decryptCiphers, Cipher.DECRYPT_MODE);
+            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+            decryptCiphers.offer(cipher);
             return new String(decryptedBytes, StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при расшифровке данных", e);
+        } finally {
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Пакетная расшифровка одним шифром и общим буфером результата
+    public List<String> decryptAll(List<String> encryptedData) {
+        List<String> result = new ArrayList<>(encryptedData.size());
+        if (encryptedData.isEmpty()) {
+            return result;
+        }
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = borrowCipher(decryptCiphers, Cipher.DECRYPT_MODE);
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] buffer = new byte[0];
+            for (String data : encryptedData) {
+                byte[] decodedBytes = decoder.decode(data);
+                int outputSize = cipher.getOutputSize(decodedBytes.length);
+                if (buffer.length < outputSize) {
+                    buffer = new byte[outputSize];
+                }
+                int length = cipher.doFinal(decodedBytes, 0, decodedBytes.length, buffer, 0);
+                result.add(new String(buffer, 0, length, StandardCharsets.UTF_8));
+            }
+            decryptCiphers.offer(cipher);
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при расшифровке данных", e);
+        } finally {
+            decryptAllTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Детерминированный отпечаток номера карты (HMAC-SHA256) для поиска по уникальному индексу,
+    // не зависящий от режима шифрования самого номера
+    public String fingerprint(String cardNumber) {
+        long start = System.nanoTime();
+        try {
+            Mac mac = fingerprintMacs.poll();
+            if (mac == null) {
+                mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+                mac.init(fingerprintKey);
+            }
+            byte[] digest = mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+            fingerprintMacs.offer(mac);
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при вычислении отпечатка номера карты", e);
+        } finally {
+            fingerprintTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("card.encryption")
+                .description("Время шифрования, расшифровки и вычисления отпечатка номера карты")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Cipher borrowCipher(BlockingQueue<Cipher> pool, int mode) throws GeneralSecurityException {
+        Cipher cipher = pool.poll();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, encryptionKey);
         }
+        return cipher;
     }
 
-    private SecretKeySpec generateKey() {
+    private static SecretKeySpec generateKey(String secretKey, String salt) {
         String keyWithSalt = secretKey + salt;
         byte[] keyBytes = new byte[16];
         byte[] originalBytes = keyWithSalt.getBytes(StandardCharsets.UTF_8);
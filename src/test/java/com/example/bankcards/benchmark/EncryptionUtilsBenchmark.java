@@ -0,0 +1,84 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.EncryptionUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость расшифровки одной карты в пачке из 1000 номеров (пачка заполнения колонок по card_number).
+// legacy* повторяет прежнюю реализацию: ключ и Cipher создаются на каждый вызов.
+// Запуск: mvn test-compile exec:java -Dexec.classpathScope=test
+//         -Dexec.mainClass=com.example.bankcards.benchmark.EncryptionUtilsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(EncryptionUtilsBenchmark.PAGE_SIZE)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionUtilsBenchmark {
+    static final int PAGE_SIZE = 1000;
+
+    private static final String SECRET_KEY = "this-is-a-secret-key-for-encryption";
+    private static final String SALT = "random-salt-value";
+
+    private EncryptionUtils encryptionUtils;
+    private List<String> encryptedCardNumbers;
+
+    @Setup
+    public void setUp() {
+        encryptionUtils = new EncryptionUtils(SECRET_KEY, SALT, "fingerprint-key");
+        encryptedCardNumbers = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            encryptedCardNumbers.add(encryptionUtils.encrypt(String.format("4000%012d", i)));
+        }
+    }
+
+    @Benchmark
+    public void legacyDecrypt(Blackhole blackhole) throws Exception {
+        for (String data : encryptedCardNumbers) {
+            blackhole.consume(legacyDecrypt(data));
+        }
+    }
+
+    @Benchmark
+    public void pooledDecrypt(Blackhole blackhole) {
+        for (String data : encryptedCardNumbers) {
+            blackhole.consume(encryptionUtils.decrypt(data));
+        }
+    }
+
+    @Benchmark
+    public void batchDecrypt(Blackhole blackhole) {
+        blackhole.consume(encryptionUtils.decryptAll(encryptedCardNumbers));
+    }
+
+    private static String legacyDecrypt(String encryptedData) throws Exception {
+        String keyWithSalt = SECRET_KEY + SALT;
+        byte[] keyBytes = new byte[16];
+        byte[] originalBytes = keyWithSalt.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(originalBytes, 0, keyBytes, 0, Math.min(originalBytes.length, keyBytes.length));
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"));
+        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EncryptionUtilsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Нагрузочное сравнение GET /api/cards на платформенных и виртуальных потоках.
+// Поднимает приложение в каждом режиме по очереди против PostgreSQL: блокировки на сокете драйвера
+// и закрепление потоков-носителей на H2 в памяти не воспроизводятся. Схема накатывается Liquibase,
+// тестовые карты создаются один раз и переиспользуются в следующих прогонах.
+// Порты приложения и actuator выбираются случайно, чтобы не конфликтовать с запущенным приложением.
+// Это main-класс, а не тест: в прогон surefire он не попадает.
+// Запуск: mvn test-compile exec:java -Dexec.classpathScope=test
+//         -Dexec.mainClass=com.example.bankcards.benchmark.VirtualThreadsLoadBenchmark
+//         -Dbenchmark.jdbc-url=jdbc:postgresql://localhost:5432/bank_cards_db -Dbenchmark.username=postgres -Dbenchmark.password=...
+// Параметры: -Dbenchmark.requests=20000 -Dbenchmark.concurrency=400; закрепления: -Djdk.tracePinnedThreads=short
+public class VirtualThreadsLoadBenchmark {
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc-url",
+            "jdbc:postgresql://localhost:5432/bank_cards_db");
+    private static final String DB_USERNAME = System.getProperty("benchmark.username", "postgres");
+    private static final String DB_PASSWORD = System.getProperty("benchmark.password", "");
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20000);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("benchmark.warmup", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    private static final String USERNAME = "load-test";
+
+    public static void main(String[] args) throws Exception {
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            run(virtualThreads);
+        }
+    }
+
+    private static void run(boolean virtualThreads) throws Exception {
+        SpringApplication application = new SpringApplication(BankCardsApplication.class);
+        application.setAdditionalProfiles(virtualThreads ? new String[]{"test", "virtual-threads"} : new String[]{"test"});
+        try (ConfigurableApplicationContext context = application.run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=" + JDBC_URL,
+                "--spring.datasource.username=" + DB_USERNAME,
+                "--spring.datasource.password=" + DB_PASSWORD,
+                "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.bankcards.access=WARN")) {
+            String token = seed(context);
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            URI uri = URI.create("http://localhost:" + port + "/api/cards?size=20");
+
+            load(uri, token, WARMUP_REQUESTS);
+            long start = System.nanoTime();
+            long[] latencies = load(uri, token, REQUESTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-16s requests=%d concurrency=%d throughput=%.0f req/s p50=%.2f ms p99=%.2f ms%n",
+                    virtualThreads ? "virtual-threads" : "platform-threads", REQUESTS, CONCURRENCY,
+                    REQUESTS / seconds, latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6);
+        }
+    }
+
+    private static long[] load(URI uri, String token, int requests) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+
+        // Нагрузку дает фиксированный пул клиентских потоков, одинаковый для обоих режимов сервера
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            executor.submit(() -> {
+                long begin = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[index] = System.nanoTime() - begin;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        if (failures.get() > 0) {
+            System.out.println("Неуспешных запросов: " + failures.get());
+        }
+        return latencies;
+    }
+
+    private static String seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+
+        if (userRepository.findByUsername(USERNAME).isEmpty()) {
+            seedCards(userRepository, cardRepository);
+        }
+
+        return context.getBean(JwtTokenProvider.class).generateToken(new org.springframework.security.core.userdetails.User(
+                USERNAME, "encoded", AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private static void seedCards(UserRepository userRepository, CardRepository cardRepository) {
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword("encoded");
+        user.setEmail("load-test@example.com");
+        user = userRepository.save(user);
+        for (int i = 0; i < 20; i++) {
+            Card card = new Card();
+            card.setCardNumber("encrypted-" + i);
+            card.setCardFingerprint("fingerprint-" + i);
+            card.setCardLastFour(String.format("%04d", i));
+            card.setCardHolder("LOAD TEST");
+            card.setExpiresOn(LocalDate.of(2099, 12, 31));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.TEN);
+            card.setUser(user);
+            cardRepository.save(card);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.config.datasource;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:primary"),
+            new DriverManagerDataSource("jdbc:h2:mem:replica"),
+            Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadOnlyTransactionGoesToReplica() {
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Route.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_CommittedWriteReturnsMarkerToClient() {
+        MockHttpServletResponse response = bindRequest(new MockHttpServletRequest());
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        // Без фиксации пишущей транзакции отметка не выставляется
+        assertNull(response.getHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER));
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+        String marker = response.getHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER);
+        assertNotNull(marker);
+        Cookie cookie = response.getCookie(ReplicaRoutingDataSource.LAST_WRITE_COOKIE);
+        assertNotNull(cookie);
+        assertEquals(marker, cookie.getValue());
+        assertEquals(60, cookie.getMaxAge());
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadWithFreshMarkerGoesToPrimaryOnAnyNode() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        MockHttpServletRequest withCookie = new MockHttpServletRequest();
+        withCookie.setCookies(new Cookie(ReplicaRoutingDataSource.LAST_WRITE_COOKIE, marker(Duration.ofSeconds(2))));
+        bindRequest(withCookie);
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        MockHttpServletRequest withHeader = new MockHttpServletRequest();
+        withHeader.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, marker(Duration.ofSeconds(2)));
+        bindRequest(withHeader);
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        MockHttpServletRequest stale = new MockHttpServletRequest();
+        stale.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, marker(Duration.ofMinutes(2)));
+        bindRequest(stale);
+        assertEquals(ReplicaRoutingDataSource.Route.REPLICA, dataSource.determineCurrentLookupKey());
+
+        MockHttpServletRequest garbage = new MockHttpServletRequest();
+        garbage.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, "abc");
+        bindRequest(garbage);
+        assertEquals(ReplicaRoutingDataSource.Route.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+
+    private static MockHttpServletResponse bindRequest(MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+
+    private static String marker(Duration age) {
+        return Long.toString(System.currentTimeMillis() - age.toMillis());
+    }
+}
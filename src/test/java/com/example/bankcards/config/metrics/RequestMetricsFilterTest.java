@@ -0,0 +1,55 @@
+package com.example.bankcards.config.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = new JdbcTemplate(new TimedDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:db_time_filter_test;DB_CLOSE_DELAY=-1")));
+    }
+
+    @Test
+    void doFilter_RecordsStatementsExecutedDuringRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/10");
+        RequestMetricsFilter filter = new RequestMetricsFilter(meterRegistry);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/cards/{id}");
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            jdbcTemplate.queryForObject("SELECT 2", Integer.class);
+        });
+
+        Timer timer = meterRegistry.get("http.server.requests.db").tag("uri", "/api/cards/{id}").timer();
+        DistributionSummary statements = meterRegistry.get("http.server.requests.db.statements").summary();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(2, statements.totalAmount());
+    }
+
+    @Test
+    void statementsOutsideRequestAreNotTracked() {
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+
+        assertNull(RequestDbTime.current());
+        assertNull(meterRegistry.find("http.server.requests.db").timer());
+    }
+}
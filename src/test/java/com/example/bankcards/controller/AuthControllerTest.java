@@ -28,7 +28,7 @@ class AuthControllerTest {
         request.setUsername("test");
         request.setPassword("password");
 
-        AuthResponse response = new AuthResponse("token");
+        AuthResponse response = new AuthResponse("token", "refresh-token");
         when(authService.authenticateUser(request)).thenReturn(response);
 
         ResponseEntity<AuthResponse> result = authController.authenticateUser(request);
@@ -0,0 +1,71 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void matches_RejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, 1, 1, meterRegistry)) {
+            CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "a"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "b"));
+            // Вторая проверка должна занять единственное место в очереди до третьего вызова
+            while (meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(ServiceOverloadedException.class, () -> encoder.matches("c", "c"));
+
+            release.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS));
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void passwordEncoder_MatchesLegacyHashAndRequestsUpgrade() {
+        try (BoundedPasswordEncoder encoder = (BoundedPasswordEncoder) new SecurityConfig(null)
+                .passwordEncoder("bcrypt", 4, 1, 10, new SimpleMeterRegistry())) {
+            String legacy = new BCryptPasswordEncoder(4).encode("password");
+            String current = encoder.encode("password");
+
+            assertTrue(current.startsWith("{bcrypt}"));
+            assertTrue(encoder.matches("password", legacy));
+            assertTrue(encoder.upgradeEncoding(legacy));
+            assertTrue(encoder.matches("password", current));
+            assertFalse(encoder.upgradeEncoding(current));
+        }
+    }
+}
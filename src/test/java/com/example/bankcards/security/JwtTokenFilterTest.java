@@ -0,0 +1,83 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtTokenFilterTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtTokenFilter jwtTokenFilter;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", "c2VjcmV0LWtleS1mb3ItdGVzdHMtc2VjcmV0LWtleS1mb3ItdGVzdHM=");
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 60_000L);
+        jwtTokenProvider.init();
+        jwtTokenFilter = new JwtTokenFilter(jwtTokenProvider, userDetailsService, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_AuthenticatesFromRolesClaimWithoutUserLookup() throws Exception {
+        String token = jwtTokenProvider.generateToken(
+                new User("test", "password", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        for (int i = 0; i < 2; i++) {
+            SecurityContextHolder.clearContext();
+            jwtTokenFilter.doFilter(requestWithToken(token), new MockHttpServletResponse(), filterChain);
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            assertNotNull(authentication);
+            assertEquals("test", authentication.getName());
+            assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        }
+
+        verifyNoInteractions(userDetailsService);
+        verify(filterChain, times(2)).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilter_InvalidTokenLeavesRequestUnauthenticated() throws Exception {
+        jwtTokenFilter.doFilter(requestWithToken("not-a-jwt"), new MockHttpServletResponse(), filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(filterChain).doFilter(any(), any());
+    }
+
+    private MockHttpServletRequest requestWithToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserPrincipalCache userPrincipalCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userPrincipalCache = new UserPrincipalCache(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void findByUsername_LoadsOnceAndRecordsHits() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user(1L, "test")));
+
+        userPrincipalCache.findByUsername("test");
+        Optional<UserPrincipalCache.CachedUser> cached = userPrincipalCache.findByUsername("test");
+
+        assertTrue(cached.isPresent());
+        assertEquals(List.of("ROLE_USER"), cached.get().roles());
+        verify(userRepository, times(1)).findByUsername("test");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void findByUsername_DoesNotCacheMissingUser() {
+        when(userRepository.findByUsername("missing")).thenReturn(Optional.empty());
+
+        assertTrue(userPrincipalCache.findByUsername("missing").isEmpty());
+        assertTrue(userPrincipalCache.findByUsername("missing").isEmpty());
+
+        verify(userRepository, times(2)).findByUsername("missing");
+    }
+
+    @Test
+    void evictById_ForcesReload() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user(1L, "test")));
+
+        userPrincipalCache.findByUsername("test");
+        userPrincipalCache.evictById(1L);
+        userPrincipalCache.findByUsername("test");
+
+        verify(userRepository, times(2)).findByUsername("test");
+    }
+
+    private User user(Long id, String username) {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setPassword("encoded");
+        user.setRoles(Set.of(role));
+        return user;
+    }
+}
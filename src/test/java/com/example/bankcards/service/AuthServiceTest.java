@@ -5,21 +5,24 @@ import com.example.bankcards.dto.AuthResponse;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserAlreadyExistsException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.RoleCache;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Optional;
+import java.sql.SQLException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,7 +37,7 @@ class AuthServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleCache roleCache;
 
     @Mock
     private PasswordEncoder passwordEncoder;
@@ -42,6 +45,9 @@ class AuthServiceTest {
     @Mock
     private JwtTokenProvider jwtTokenProvider;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private AuthService authService;
 
@@ -52,12 +58,16 @@ class AuthServiceTest {
         request.setPassword("password");
 
         Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(
+                new org.springframework.security.core.userdetails.User("test", "", List.of()));
         when(authenticationManager.authenticate(any())).thenReturn(authentication);
         when(jwtTokenProvider.generateToken(any())).thenReturn("token");
+        when(refreshTokenService.issue("test")).thenReturn("refresh-token");
 
         AuthResponse response = authService.authenticateUser(request);
 
         assertEquals("token", response.getToken());
+        assertEquals("refresh-token", response.getRefreshToken());
         verify(authenticationManager).authenticate(any());
     }
 
@@ -82,14 +92,14 @@ class AuthServiceTest {
         Role role = new Role();
         role.setName("ROLE_USER");
 
-        when(userRepository.existsByUsername("newuser")).thenReturn(false);
-        when(userRepository.existsByEmail("new@example.com")).thenReturn(false);
-        when(roleRepository.findByName("ROLE_USER")).thenReturn(Optional.of(role));
+        when(roleCache.get("ROLE_USER")).thenReturn(role);
         when(passwordEncoder.encode("password")).thenReturn("encoded");
 
         authService.registerUser(request);
 
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(argThat(user -> user.getRoles().contains(role)));
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
     }
 
     @Test
@@ -99,8 +109,31 @@ class AuthServiceTest {
         request.setPassword("password");
         request.setEmail("new@example.com");
 
-        when(userRepository.existsByUsername("existing")).thenReturn(true);
+        when(roleCache.get("ROLE_USER")).thenReturn(new Role());
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation(AuthService.USERNAME_CONSTRAINT));
+
+        UserAlreadyExistsException exception =
+                assertThrows(UserAlreadyExistsException.class, () -> authService.registerUser(request));
+        assertEquals("Имя пользователя уже занято!", exception.getMessage());
+    }
+
+    @Test
+    void registerUser_EmailExists() {
+        AuthRequest request = new AuthRequest();
+        request.setUsername("username");
+        request.setPassword("password");
+        request.setEmail("existing@example.com");
+
+        when(roleCache.get("ROLE_USER")).thenReturn(new Role());
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation(AuthService.EMAIL_CONSTRAINT));
+
+        UserAlreadyExistsException exception =
+                assertThrows(UserAlreadyExistsException.class, () -> authService.registerUser(request));
+        assertEquals("Электронная почта уже используется!", exception.getMessage());
+    }
 
-        assertThrows(UserAlreadyExistsException.class, () -> authService.registerUser(request));
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"), constraintName));
     }
 }
\ No newline at end of file
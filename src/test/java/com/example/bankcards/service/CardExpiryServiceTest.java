@@ -0,0 +1,72 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardExpiryServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardExpiryService cardExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        cardExpiryService = new CardExpiryService(cardRepository, schedulerLockService, transactionManager,
+                100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void expireCards_UpdatesInChunksUntilLastPartialChunk() {
+        when(schedulerLockService.tryLock(CardExpiryService.LOCK_NAME, Duration.ofMinutes(5))).thenReturn(true);
+        when(schedulerLockService.extend(CardExpiryService.LOCK_NAME, Duration.ofMinutes(5))).thenReturn(true);
+        when(cardRepository.expireActiveCards(LocalDate.now(), 100)).thenReturn(100, 100, 7);
+
+        cardExpiryService.expireCards();
+
+        InOrder inOrder = inOrder(cardRepository, schedulerLockService);
+        inOrder.verify(cardRepository, times(3)).expireActiveCards(LocalDate.now(), 100);
+        inOrder.verify(schedulerLockService).unlock(CardExpiryService.LOCK_NAME);
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void expireCards_SkipsWhenAnotherNodeHoldsLock() {
+        when(schedulerLockService.tryLock(eq(CardExpiryService.LOCK_NAME), any())).thenReturn(false);
+
+        cardExpiryService.expireCards();
+
+        verifyNoInteractions(cardRepository);
+        verify(schedulerLockService, never()).unlock(any());
+    }
+
+    @Test
+    void expireCards_StopsWhenLockLost() {
+        when(schedulerLockService.tryLock(eq(CardExpiryService.LOCK_NAME), any())).thenReturn(true);
+        when(schedulerLockService.extend(eq(CardExpiryService.LOCK_NAME), any())).thenReturn(false);
+        when(cardRepository.expireActiveCards(any(), eq(100))).thenReturn(100);
+
+        cardExpiryService.expireCards();
+
+        verify(cardRepository, times(1)).expireActiveCards(any(), eq(100));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueDTO;
+import com.example.bankcards.dto.BulkCardResultDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.EncryptionUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardIssuanceServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardIssuanceService cardIssuanceService;
+
+    @BeforeEach
+    void setUp() {
+        EncryptionUtils encryptionUtils = new EncryptionUtils("test-secret", "test-salt", "test-fingerprint");
+        cardIssuanceService = new CardIssuanceService(cardRepository, userRepository, encryptionUtils,
+                transactionManager, new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    @Test
+    void issueCards_ReportsPerRowResultsAcrossChunks() throws Exception {
+        String ndjson = """
+                {"userId":1,"cardNumber":"1111222233334444","cardHolder":"IVAN IVANOV","expiryDate":"12/30"}
+                {"userId":1,"cardNumber":"123","cardHolder":"IVAN IVANOV","expiryDate":"12/30"}
+                {"userId":2,"cardNumber":"5555666677778888","cardHolder":"PETR PETROV","expiryDate":"01/31"}
+                {"userId":1,"cardNumber":"9999000011112222","cardHolder":"IVAN IVANOV","expiryDate":"02/31"}
+                """;
+        when(userRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> {
+            Set<Long> ids = Set.copyOf(invocation.getArgument(0));
+            return ids.contains(1L) ? Set.of(1L) : Set.of();
+        });
+        when(cardRepository.findExistingFingerprints(anyCollection())).thenReturn(Set.of());
+        when(userRepository.getReferenceById(1L)).thenReturn(new User());
+        AtomicLong ids = new AtomicLong(100);
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            cards.forEach(card -> card.setId(ids.getAndIncrement()));
+            return cards;
+        });
+
+        BulkCardIssueDTO result = cardIssuanceService.issueCards(input(ndjson));
+
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getRejected());
+        List<BulkCardResultDTO> rows = result.getResults();
+        assertEquals(List.of(0, 1, 2, 3), rows.stream().map(BulkCardResultDTO::getIndex).toList());
+        assertEquals(BulkCardResultDTO.Status.CREATED, rows.get(0).getStatus());
+        assertEquals(100L, rows.get(0).getCardId());
+        assertEquals("**** **** **** 4444", rows.get(0).getCardNumber());
+        assertEquals(BulkCardResultDTO.Status.REJECTED, rows.get(1).getStatus());
+        assertEquals("Номер карты должен состоять из 16 цифр", rows.get(1).getError());
+        assertEquals(BulkCardResultDTO.Status.REJECTED, rows.get(2).getStatus());
+        assertEquals("Пользователь с id не найден: 2", rows.get(2).getError());
+        assertEquals(BulkCardResultDTO.Status.CREATED, rows.get(3).getStatus());
+        assertEquals(101L, rows.get(3).getCardId());
+        verify(cardRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void issueCards_RejectsDuplicateAndExistingNumbers() throws Exception {
+        String json = """
+                [
+                  {"userId":1,"cardNumber":"1111222233334444","cardHolder":"IVAN IVANOV","expiryDate":"12/30"},
+                  {"userId":1,"cardNumber":"1111222233334444","cardHolder":"IVAN IVANOV","expiryDate":"12/30"}
+                ]
+                """;
+        when(userRepository.findExistingIds(anyCollection())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(anyCollection()))
+                .thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+
+        BulkCardIssueDTO result = cardIssuanceService.issueCards(input(json));
+
+        assertEquals(0, result.getCreated());
+        assertEquals("Карта с этим номером уже существует", result.getResults().get(0).getError());
+        assertEquals("Номер карты повторяется во входных данных", result.getResults().get(1).getError());
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void issueCards_StopsAtMalformedRowAndKeepsPreviousResults() throws Exception {
+        String ndjson = """
+                {"userId":1,"cardNumber":"1111222233334444","cardHolder":"IVAN IVANOV","expiryDate":"12/30"}
+                {"userId":1,"cardNumber":
+                """;
+        when(userRepository.findExistingIds(anyCollection())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(anyCollection())).thenReturn(Set.of());
+        when(userRepository.getReferenceById(1L)).thenReturn(new User());
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BulkCardIssueDTO result = cardIssuanceService.issueCards(input(ndjson));
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(1, result.getResults().get(1).getIndex());
+        assertTrue(result.getResults().get(1).getError().startsWith("Некорректный формат строки"));
+    }
+
+    private static ByteArrayInputStream input(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
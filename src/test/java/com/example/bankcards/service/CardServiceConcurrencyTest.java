@@ -0,0 +1,227 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TopUpDTO;
+import com.example.bankcards.dto.TransferDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserPrincipalCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CardServiceConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 100;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardTransactionRepository cardTransactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+    private UserDetails userDetails;
+    private List<Long> cardIds;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("concurrent");
+        user.setPassword("encoded");
+        user.setEmail("concurrent@example.com");
+        user = userRepository.save(user);
+        userDetails = new org.springframework.security.core.userdetails.User("concurrent", "encoded", List.of());
+
+        cardIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Card card = new Card();
+            card.setCardNumber("encrypted-" + i);
+            card.setCardFingerprint("fingerprint-" + i);
+            card.setCardLastFour("000" + i);
+            card.setCardHolder("CONCURRENT TEST");
+            card.setExpiresOn(LocalDate.of(2099, 12, 31));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(INITIAL_BALANCE);
+            card.setUser(user);
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardTransactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        // Пользователь пересоздается в каждом тесте с новым id
+        userPrincipalCache.evict("concurrent");
+    }
+
+    @Test
+    void concurrentTransfers_ConserveBalances() throws Exception {
+        long timedBefore = transferTimerCount();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int from = random.nextInt(cardIds.size());
+                    int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+                    TransferDTO transfer = new TransferDTO();
+                    transfer.setFromCardId(cardIds.get(from));
+                    transfer.setToCardId(cardIds.get(to));
+                    transfer.setAmount(new BigDecimal("7.00"));
+                    try {
+                        cardService.transferBetweenUserCards(transfer, userDetails);
+                    } catch (InsufficientFundsException ignored) {
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream().map(Card::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(cardIds.size()));
+
+        assertEquals(0, expected.compareTo(total), "Сумма балансов должна сохраниться");
+        cards.forEach(card -> assertTrue(card.getBalance().signum() >= 0));
+
+        // Журнал сходится с балансами: начальный баланс плюс сумма проводок по карте
+        List<CardTransaction> ledger = cardTransactionRepository.findAll();
+        for (Card card : cards) {
+            BigDecimal ledgerTotal = ledger.stream()
+                    .filter(entry -> entry.getCardId().equals(card.getId()))
+                    .map(CardTransaction::getAmount)
+                    .reduce(INITIAL_BALANCE, BigDecimal::add);
+            assertEquals(0, card.getBalance().compareTo(ledgerTotal));
+        }
+        assertEquals(0, ledger.stream().map(CardTransaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+
+        // Каждый вызов попал в таймер card.service: успешные с exception=none, отказы — с типом исключения
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, transferTimerCount() - timedBefore);
+    }
+
+    // Каждый десятый шаг — пополнение карты, в которую параллельно идут переводы.
+    // Пополнение — PostgreSQL UPDATE ... RETURNING, поэтому тест запускается только против PostgreSQL:
+    // mvn test -Dspring.datasource.url=jdbc:postgresql://... -Dspring.datasource.driver-class-name=org.postgresql.Driver
+    @Test
+    @EnabledIfSystemProperty(named = "spring.datasource.url", matches = "jdbc:postgresql:.*",
+            disabledReason = "UPDATE ... RETURNING не поддерживается в H2")
+    void concurrentTransfersAndTopUps_ConserveBalances() throws Exception {
+        AtomicInteger topUps = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int from = random.nextInt(cardIds.size());
+                    int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+                    if (i % 10 == 0) {
+                        TopUpDTO topUp = new TopUpDTO();
+                        topUp.setCardId(cardIds.get(to));
+                        topUp.setAmount(BigDecimal.ONE);
+                        cardService.topUpUserCard(topUp, userDetails);
+                        topUps.incrementAndGet();
+                        continue;
+                    }
+                    TransferDTO transfer = new TransferDTO();
+                    transfer.setFromCardId(cardIds.get(from));
+                    transfer.setToCardId(cardIds.get(to));
+                    transfer.setAmount(new BigDecimal("7.00"));
+                    try {
+                        cardService.transferBetweenUserCards(transfer, userDetails);
+                    } catch (InsufficientFundsException ignored) {
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream().map(Card::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(cardIds.size()))
+                .add(BigDecimal.valueOf(topUps.get()));
+
+        assertEquals(0, expected.compareTo(total), "Сумма балансов должна увеличиться ровно на пополнения");
+        cards.forEach(card -> assertTrue(card.getBalance().signum() >= 0));
+
+        List<CardTransaction> ledger = cardTransactionRepository.findAll();
+        for (Card card : cards) {
+            BigDecimal ledgerTotal = ledger.stream()
+                    .filter(entry -> entry.getCardId().equals(card.getId()))
+                    .map(CardTransaction::getAmount)
+                    .reduce(INITIAL_BALANCE, BigDecimal::add);
+            assertEquals(0, card.getBalance().compareTo(ledgerTotal));
+        }
+        // Пополнения списаны с внешнего счета, поэтому журнал в целом сходится в ноль
+        assertEquals(0, ledger.stream().map(CardTransaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+        BigDecimal external = ledger.stream()
+                .filter(entry -> entry.getCardId() == CardTransaction.EXTERNAL_ACCOUNT_ID)
+                .map(CardTransaction::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, BigDecimal.valueOf(-topUps.get()).compareTo(external));
+    }
+
+    private long transferTimerCount() {
+        return meterRegistry.find("card.service").tag("method", "transferBetweenUserCards").timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+}
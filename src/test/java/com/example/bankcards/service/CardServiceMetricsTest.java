@@ -0,0 +1,41 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CardServiceMetricsTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void publicMethods_RecordCardServiceTimerByOutcome() {
+        long successBefore = count("getAllCards", "none");
+        long failureBefore = count("getAnyCardById", "ResourceNotFoundException");
+
+        cardService.getAllCards(PageRequest.of(0, 10));
+        assertThrows(ResourceNotFoundException.class, () -> cardService.getAnyCardById(-1L));
+
+        assertNotNull(meterRegistry.find("card.service").timer());
+        assertEquals(successBefore + 1, count("getAllCards", "none"));
+        assertEquals(failureBefore + 1, count("getAnyCardById", "ResourceNotFoundException"));
+    }
+
+    private long count(String method, String exception) {
+        Timer timer = meterRegistry.find("card.service").tag("method", method).tag("exception", exception).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferDTO;
+import com.example.bankcards.dto.BatchTransferResultDTO;
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardTransactionDTO;
+import com.example.bankcards.dto.CardTransactionPageDTO;
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.TopUpDTO;
+import com.example.bankcards.dto.TopUpResultDTO;
+import com.example.bankcards.dto.TransferDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.CardTransactionType;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardNotActiveException;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserPrincipalCache;
+import com.example.bankcards.util.CardExpiry;
+import com.example.bankcards.util.EncryptionUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardTransactionRepository cardTransactionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EncryptionUtils encryptionUtils;
+
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    @InjectMocks
+    private CardService cardService;
+
+    private User user;
+    private UserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("test");
+        userDetails = new org.springframework.security.core.userdetails.User("test", "password", List.of());
+    }
+
+    @Test
+    void topUpUserCard_Success() {
+        stubUser();
+        when(cardRepository.topUpActiveCard(10L, 1L, new BigDecimal("50.00"), LocalDate.now()))
+                .thenReturn(Optional.of(new BigDecimal("150.00")));
+
+        TopUpResultDTO result = cardService.topUpUserCard(topUp(10L, "50.00"), userDetails);
+
+        assertEquals(10L, result.getId());
+        assertEquals(new BigDecimal("150.00"), result.getBalance());
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).existsByIdAndUserId(any(), any());
+        verify(cardTransactionRepository).appendAll(argThat(entries -> entries.size() == 2
+                && entries.get(0).getType() == CardTransactionType.TOP_UP
+                && entries.get(0).getBalanceAfter().equals(new BigDecimal("150.00"))
+                && entries.get(1).getCardId() == CardTransaction.EXTERNAL_ACCOUNT_ID
+                && entries.get(0).getOperationId().equals(entries.get(1).getOperationId())
+                && entries.get(0).getAmount().add(entries.get(1).getAmount()).signum() == 0));
+    }
+
+    @Test
+    void topUpUserCard_InactiveCard() {
+        stubUser();
+        when(cardRepository.topUpActiveCard(10L, 1L, BigDecimal.TEN, LocalDate.now())).thenReturn(Optional.empty());
+        when(cardRepository.existsByIdAndUserId(10L, 1L)).thenReturn(true);
+
+        assertThrows(CardNotActiveException.class, () -> cardService.topUpUserCard(topUp(10L, "10"), userDetails));
+    }
+
+    @Test
+    void topUpUserCard_CardNotFound() {
+        stubUser();
+        when(cardRepository.topUpActiveCard(10L, 1L, BigDecimal.TEN, LocalDate.now())).thenReturn(Optional.empty());
+        when(cardRepository.existsByIdAndUserId(10L, 1L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.topUpUserCard(topUp(10L, "10"), userDetails));
+    }
+
+    @Test
+    void topUpUserCard_NonPositiveAmount() {
+        assertThrows(CardOperationException.class, () -> cardService.topUpUserCard(topUp(10L, "0"), userDetails));
+        verifyNoInteractions(cardRepository, cardTransactionRepository);
+    }
+
+    @Test
+    void getCardTransactions_ReturnsCursorWhenMoreRowsExist() {
+        stubUser();
+        when(cardRepository.existsByIdAndUserId(10L, 1L)).thenReturn(true);
+        LocalDateTime now = LocalDateTime.now();
+        List<CardTransactionDTO> rows = List.of(
+                transaction(3L, now), transaction(2L, now.minusMinutes(1)), transaction(1L, now.minusMinutes(2)));
+        when(cardTransactionRepository.findByCardIdBefore(10L, now, 4L, PageRequest.ofSize(3))).thenReturn(rows);
+
+        CardTransactionPageDTO page = cardService.getCardTransactions(10L, now, 4L, 2, userDetails);
+
+        assertEquals(2, page.getTransactions().size());
+        assertEquals(2L, page.getNextId());
+        assertEquals(now.minusMinutes(1), page.getNextCreatedAt());
+    }
+
+    @Test
+    void getCardTransactions_ForeignCard() {
+        stubUser();
+        when(cardRepository.existsByIdAndUserId(10L, 1L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> cardService.getCardTransactions(10L, null, null, 20, userDetails));
+        verifyNoInteractions(cardTransactionRepository);
+    }
+
+    @Test
+    void getUserCardById_MapsProjectionWithMaskedNumber() {
+        stubUser();
+        when(cardRepository.findViewByIdAndUserId(10L, 1L)).thenReturn(Optional.of(
+                new CardView(10L, "4444", "IVAN IVANOV", LocalDate.of(2030, 12, 31), CardStatus.ACTIVE, new BigDecimal("150.00"))));
+
+        CardDTO card = cardService.getUserCardById(10L, userDetails);
+
+        assertEquals(10L, card.getId());
+        assertEquals("**** **** **** 4444", card.getCardNumber());
+        assertEquals("12/30", card.getExpiryDate());
+        assertEquals(new BigDecimal("150.00"), card.getBalance());
+        verifyNoInteractions(encryptionUtils);
+    }
+
+    @Test
+    void getExpiringCards_QueriesActiveCardsWithinDays() {
+        LocalDate today = LocalDate.now();
+        when(cardRepository.findActiveViewsExpiringBetween(today, today.plusDays(30), Pageable.unpaged()))
+                .thenReturn(new PageImpl<>(List.of(new CardView(10L, "4444", "IVAN IVANOV",
+                        today.plusDays(5), CardStatus.ACTIVE, BigDecimal.ZERO))));
+
+        Page<CardDTO> cards = cardService.getExpiringCards(30, Pageable.unpaged());
+
+        assertEquals(1, cards.getTotalElements());
+        assertEquals(CardExpiry.format(today.plusDays(5)), cards.getContent().get(0).getExpiryDate());
+    }
+
+    @Test
+    void adminActivateCard_ExpiredCardRejected() {
+        Card card = activeCard(10L, "0.00");
+        card.setStatus(CardStatus.BLOCKED);
+        card.setExpiresOn(LocalDate.now().minusDays(1));
+        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+
+        assertThrows(CardOperationException.class, () -> cardService.adminActivateCard(10L));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void createCardForUser_InvalidExpiryDateRejected() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        CardDTO dto = new CardDTO();
+        dto.setCardNumber("1111222233334444");
+        dto.setCardHolder("IVAN IVANOV");
+        dto.setExpiryDate("13/30");
+
+        assertThrows(CardOperationException.class, () -> cardService.createCardForUser(dto, 1L));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void getUserCardById_ForeignCard() {
+        stubUser();
+        when(cardRepository.findViewByIdAndUserId(10L, 1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.getUserCardById(10L, userDetails));
+    }
+
+    @Test
+    void transferBatch_AppliesLegsInOrderAgainstRunningBalances() {
+        stubUser();
+        Card first = activeCard(1L, "100.00");
+        Card second = activeCard(2L, "0.00");
+        Card third = activeCard(3L, "0.00");
+        when(cardRepository.findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L)))
+                .thenReturn(List.of(first, second, third));
+
+        BatchTransferResultDTO result = cardService.transferBatch(
+                batch(BatchTransferDTO.Mode.ALL_OR_NOTHING, transfer(1L, 2L, "80.00"), transfer(2L, 3L, "50.00")),
+                userDetails);
+
+        assertEquals(2, result.getApplied());
+        assertEquals(new BigDecimal("20.00"), first.getBalance());
+        assertEquals(new BigDecimal("30.00"), second.getBalance());
+        assertEquals(new BigDecimal("50.00"), third.getBalance());
+        verify(cardRepository).findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L));
+        verify(cardTransactionRepository).appendAll(argThat(rows -> rows.size() == 4));
+    }
+
+    @Test
+    void transferBatch_AllOrNothingFailsOnFirstInvalidLeg() {
+        stubUser();
+        when(cardRepository.findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L)))
+                .thenReturn(List.of(activeCard(1L, "100.00"), activeCard(2L, "0.00")));
+
+        InsufficientFundsException e = assertThrows(InsufficientFundsException.class, () -> cardService.transferBatch(
+                batch(BatchTransferDTO.Mode.ALL_OR_NOTHING, transfer(1L, 2L, "80.00"), transfer(1L, 2L, "80.00")),
+                userDetails));
+
+        assertTrue(e.getMessage().startsWith("Перевод #1: "));
+        verifyNoInteractions(cardTransactionRepository);
+    }
+
+    @Test
+    void transferBatch_BestEffortSkipsInvalidLegs() {
+        stubUser();
+        Card first = activeCard(1L, "100.00");
+        Card second = activeCard(2L, "0.00");
+        when(cardRepository.findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L))).thenReturn(List.of(first, second));
+
+        BatchTransferResultDTO result = cardService.transferBatch(batch(BatchTransferDTO.Mode.BEST_EFFORT,
+                transfer(1L, 2L, "80.00"), transfer(1L, 9L, "10.00"), transfer(1L, 2L, "80.00")), userDetails);
+
+        assertEquals(1, result.getApplied());
+        assertEquals(2, result.getRejected());
+        assertEquals(BatchTransferResultDTO.Status.APPLIED, result.getResults().get(0).getStatus());
+        assertEquals("Карта с id не найдена: 9", result.getResults().get(1).getError());
+        assertEquals("Недостаточно средств на исходной карте", result.getResults().get(2).getError());
+        assertEquals(new BigDecimal("20.00"), first.getBalance());
+        assertEquals(new BigDecimal("80.00"), second.getBalance());
+    }
+
+    @Test
+    void transferBetweenUserCards_ExpiredActiveCardRejected() {
+        stubUser();
+        Card from = activeCard(1L, "100.00");
+        Card to = activeCard(2L, "0.00");
+        to.setExpiresOn(LocalDate.now().minusDays(1));
+        when(cardRepository.findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L))).thenReturn(List.of(from, to));
+
+        assertThrows(CardNotActiveException.class,
+                () -> cardService.transferBetweenUserCards(transfer(1L, 2L, "10.00"), userDetails));
+        assertEquals(new BigDecimal("100.00"), from.getBalance());
+        verifyNoInteractions(cardTransactionRepository);
+    }
+
+    @Test
+    void transferBatch_BestEffortRejectsExpiredActiveCard() {
+        stubUser();
+        Card first = activeCard(1L, "100.00");
+        Card expired = activeCard(2L, "0.00");
+        expired.setExpiresOn(LocalDate.now().minusDays(1));
+        Card third = activeCard(3L, "0.00");
+        when(cardRepository.findAllByIdInAndUserIdForUpdate(anyCollection(), eq(1L)))
+                .thenReturn(List.of(first, expired, third));
+
+        BatchTransferResultDTO result = cardService.transferBatch(batch(BatchTransferDTO.Mode.BEST_EFFORT,
+                transfer(1L, 2L, "10.00"), transfer(1L, 3L, "10.00")), userDetails);
+
+        assertEquals(1, result.getApplied());
+        assertEquals("Срок действия одной или обеих карт истек", result.getResults().get(0).getError());
+        assertEquals(new BigDecimal("10.00"), third.getBalance());
+    }
+
+    private Card activeCard(Long id, String balance) {
+        Card card = new Card();
+        card.setId(id);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal(balance));
+        card.setExpiresOn(LocalDate.now().plusYears(1));
+        return card;
+    }
+
+    private TransferDTO transfer(Long fromCardId, Long toCardId, String amount) {
+        TransferDTO transfer = new TransferDTO();
+        transfer.setFromCardId(fromCardId);
+        transfer.setToCardId(toCardId);
+        transfer.setAmount(new BigDecimal(amount));
+        return transfer;
+    }
+
+    private BatchTransferDTO batch(BatchTransferDTO.Mode mode, TransferDTO... transfers) {
+        BatchTransferDTO batch = new BatchTransferDTO();
+        batch.setMode(mode);
+        batch.setTransfers(List.of(transfers));
+        return batch;
+    }
+
+    private CardTransactionDTO transaction(Long id, LocalDateTime createdAt) {
+        return new CardTransactionDTO(id, null, CardTransactionType.TOP_UP, BigDecimal.ONE, BigDecimal.ONE, null, createdAt);
+    }
+
+    private void stubUser() {
+        when(userPrincipalCache.findByUsername("test"))
+                .thenReturn(Optional.of(new UserPrincipalCache.CachedUser(1L, "test", "encoded", List.of("ROLE_USER"))));
+    }
+
+    private TopUpDTO topUp(Long cardId, String amount) {
+        TopUpDTO topUp = new TopUpDTO();
+        topUp.setCardId(cardId);
+        topUp.setAmount(new BigDecimal(amount));
+        return topUp;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardTransactionPartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private CardTransactionPartitionService partitionService;
+
+    @BeforeEach
+    void setUp() {
+        partitionService = new CardTransactionPartitionService(jdbcTemplate, schedulerLockService, 2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void createUpcomingPartitions_CreatesMonthsAheadUnderLock() {
+        when(schedulerLockService.tryLock(CardTransactionPartitionService.LOCK_NAME, Duration.ofMinutes(5))).thenReturn(true);
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+
+        partitionService.createUpcomingPartitions();
+
+        InOrder inOrder = inOrder(jdbcTemplate, schedulerLockService);
+        inOrder.verify(jdbcTemplate).queryForList("SELECT create_card_transactions_partition(?)", month);
+        inOrder.verify(jdbcTemplate).queryForList("SELECT create_card_transactions_partition(?)", month.plusMonths(1));
+        inOrder.verify(jdbcTemplate).queryForList("SELECT create_card_transactions_partition(?)", month.plusMonths(2));
+        inOrder.verify(schedulerLockService).unlock(CardTransactionPartitionService.LOCK_NAME);
+    }
+
+    @Test
+    void createUpcomingPartitions_SkipsWhenAnotherNodeHoldsLock() {
+        when(schedulerLockService.tryLock(eq(CardTransactionPartitionService.LOCK_NAME), any())).thenReturn(false);
+
+        partitionService.createUpcomingPartitions();
+
+        verifyNoInteractions(jdbcTemplate);
+        verify(schedulerLockService, never()).unlock(any());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.UserExportRow;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(cardRepository, userRepository, entityManager, new ObjectMapper());
+    }
+
+    @Test
+    void exportCards_WritesMaskedNdjsonAndClearsPersistenceContext() throws Exception {
+        when(cardRepository.streamAll()).thenReturn(IntStream.rangeClosed(1, 1000).mapToObj(i -> card((long) i)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = exportService.exportCards(ExportFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1000, count);
+        assertEquals(1000, lines.length);
+        assertEquals("{\"id\":1,\"userId\":7,\"cardNumber\":\"**** **** **** 4444\",\"cardHolder\":\"IVAN, IVANOV\","
+                + "\"expiryDate\":\"12/30\",\"status\":\"ACTIVE\",\"balance\":\"150.00\","
+                + "\"createdAt\":\"2024-01-15T10:30\"}", lines[0]);
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void exportCards_QuotesCsvValues() throws Exception {
+        when(cardRepository.streamAll()).thenReturn(Stream.of(card(1L)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.exportCards(ExportFormat.CSV, output);
+
+        assertEquals("id,userId,cardNumber,cardHolder,expiryDate,status,balance,createdAt\n"
+                + "1,7,**** **** **** 4444,\"IVAN, IVANOV\",12/30,ACTIVE,150.00,2024-01-15T10:30\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportUsers_GroupsRolesOfConsecutiveRows() throws Exception {
+        when(userRepository.streamAllForExport()).thenReturn(Stream.of(
+                new UserExportRow(1L, "admin", "admin@example.com", CREATED_AT, "ROLE_ADMIN"),
+                new UserExportRow(1L, "admin", "admin@example.com", CREATED_AT, "ROLE_USER"),
+                new UserExportRow(2L, "user", "user@example.com", CREATED_AT, null)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = exportService.exportUsers(ExportFormat.CSV, output);
+
+        assertEquals(2, count);
+        assertEquals("id,username,email,roles,createdAt\n"
+                + "1,admin,admin@example.com,ROLE_ADMIN;ROLE_USER,2024-01-15T10:30\n"
+                + "2,user,user@example.com,,2024-01-15T10:30\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    private static Card card(Long id) {
+        User user = new User();
+        user.setId(7L);
+        Card card = new Card();
+        card.setId(id);
+        card.setUser(user);
+        card.setCardLastFour("4444");
+        card.setCardHolder("IVAN, IVANOV");
+        card.setExpiresOn(LocalDate.of(2030, 12, 31));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("150.00"));
+        card.setCreatedAt(CREATED_AT);
+        return card;
+    }
+}
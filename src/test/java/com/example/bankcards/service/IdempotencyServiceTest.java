@@ -0,0 +1,121 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.TopUpDTO;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.IdempotencyKeyException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, transactionManager,
+                new ObjectMapper(), Duration.ofHours(24));
+    }
+
+    @Test
+    void execute_ReplaysStoredResponseForRepeatedKey() {
+        AtomicInteger executions = new AtomicInteger();
+        CardDTO card = new CardDTO();
+        card.setId(10L);
+        card.setBalance(new BigDecimal("150.00"));
+        when(idempotencyRecordRepository.insertIfAbsent(eq("test"), eq("key-1"), anyString(), any(), any()))
+                .thenReturn(1, 0);
+
+        CardDTO first = idempotencyService.execute("key-1", "test", "top-up", topUp(), CardDTO.class, () -> {
+            executions.incrementAndGet();
+            return card;
+        });
+
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).insertIfAbsent(eq("test"), eq("key-1"), hash.capture(), any(), any());
+        verify(idempotencyRecordRepository).saveResponse(eq("test"), eq("key-1"), body.capture());
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("test", "key-1"))
+                .thenReturn(Optional.of(record(hash.getValue(), body.getValue())));
+
+        CardDTO second = idempotencyService.execute("key-1", "test", "top-up", topUp(), CardDTO.class, () -> {
+            executions.incrementAndGet();
+            return card;
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void execute_RejectsKeyReusedForDifferentRequest() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("test"), eq("key-1"), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findByUsernameAndIdempotencyKey("test", "key-1"))
+                .thenReturn(Optional.of(record("other-hash", null)));
+
+        assertThrows(IdempotencyKeyException.class, () ->
+                idempotencyService.execute("key-1", "test", "top-up", topUp(), CardDTO.class, CardDTO::new));
+    }
+
+    @Test
+    void execute_ExpiredKeyIsClaimedAgain() {
+        AtomicInteger executions = new AtomicInteger();
+        when(idempotencyRecordRepository.insertIfAbsent(eq("test"), eq("key-1"), anyString(), any(), any()))
+                .thenReturn(0, 1);
+        when(idempotencyRecordRepository.deleteIfExpired(eq("test"), eq("key-1"), any())).thenReturn(1);
+
+        idempotencyService.execute("key-1", "test", "top-up", topUp(), CardDTO.class, () -> {
+            executions.incrementAndGet();
+            return new CardDTO();
+        });
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, never()).findByUsernameAndIdempotencyKey(any(), any());
+        verify(idempotencyRecordRepository).saveResponse(eq("test"), eq("key-1"), anyString());
+    }
+
+    @Test
+    void execute_WithoutKeyRunsActionDirectly() {
+        CardDTO card = new CardDTO();
+
+        assertSame(card, idempotencyService.execute(null, "test", "top-up", topUp(), CardDTO.class, () -> card));
+        verifyNoInteractions(idempotencyRecordRepository, transactionManager);
+    }
+
+    private IdempotencyRecord record(String requestHash, String responseBody) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setRequestHash(requestHash);
+        record.setResponseBody(responseBody);
+        return record;
+    }
+
+    private TopUpDTO topUp() {
+        TopUpDTO topUp = new TopUpDTO();
+        topUp.setCardId(10L);
+        topUp.setAmount(new BigDecimal("50.00"));
+        return topUp;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.security.CustomUserDetailsService;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.UserPrincipalCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private JwtTokenProvider jwtTokenProvider;
+
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userPrincipalCache, userDetailsService,
+                jwtTokenProvider, "refresh-hash-key", Duration.ofDays(14));
+    }
+
+    @Test
+    void issue_StoresOnlyHashOfToken() {
+        when(userPrincipalCache.findByUsername("test"))
+                .thenReturn(Optional.of(new UserPrincipalCache.CachedUser(1L, "test", "encoded", List.of("ROLE_USER"))));
+
+        String token = refreshTokenService.issue("test");
+
+        RefreshToken stored = captureSaved();
+        assertEquals(1L, stored.getUserId());
+        assertEquals(64, stored.getTokenHash().length());
+        assertNotEquals(token, stored.getTokenHash());
+        assertNull(stored.getRevokedAt());
+    }
+
+    @Test
+    void refresh_RotatesTokenWithinFamily() {
+        RefreshToken current = storedToken(null);
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.revoke(eq(5L), any())).thenReturn(1);
+        when(userDetailsService.loadUserByUsername("test")).thenReturn(new User("test", "", List.of()));
+        when(jwtTokenProvider.generateToken(any())).thenReturn("access-token");
+
+        AuthResponse response = refreshTokenService.refresh("old-token");
+
+        RefreshToken next = captureSaved();
+        assertEquals("access-token", response.getToken());
+        assertNotEquals("old-token", response.getRefreshToken());
+        assertEquals("family-1", next.getFamilyId());
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void refresh_ReusedTokenRevokesFamily() {
+        RefreshToken current = storedToken(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh("old-token"));
+
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(refreshTokenRepository, never()).save(any());
+        verifyNoInteractions(jwtTokenProvider);
+    }
+
+    private RefreshToken captureSaved() {
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        return saved.getValue();
+    }
+
+    private static RefreshToken storedToken(LocalDateTime revokedAt) {
+        RefreshToken token = new RefreshToken();
+        token.setId(5L);
+        token.setUserId(1L);
+        token.setUsername("test");
+        token.setTokenHash("hash");
+        token.setFamilyId("family-1");
+        token.setCreatedAt(LocalDateTime.now().minusDays(1));
+        token.setExpiresAt(LocalDateTime.now().plusDays(13));
+        token.setRevokedAt(revokedAt);
+        return token;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerLockServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:scheduler_lock_test;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS scheduler_locks");
+        jdbcTemplate.execute("CREATE TABLE scheduler_locks (name VARCHAR(64) PRIMARY KEY, "
+                + "locked_until TIMESTAMP NOT NULL, locked_by VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO scheduler_locks (name, locked_until) VALUES ('job', TIMESTAMP '1970-01-01 00:00:00')");
+    }
+
+    @Test
+    void tryLock_OnlyOneNodeHoldsLeaseUntilUnlock() {
+        SchedulerLockService first = new SchedulerLockService(jdbcTemplate);
+        SchedulerLockService second = new SchedulerLockService(jdbcTemplate);
+
+        assertTrue(first.tryLock("job", Duration.ofMinutes(5)));
+        assertFalse(second.tryLock("job", Duration.ofMinutes(5)));
+        assertFalse(second.extend("job", Duration.ofMinutes(5)));
+        assertTrue(first.extend("job", Duration.ofMinutes(5)));
+
+        // Чужой unlock не снимает блокировку
+        second.unlock("job");
+        assertFalse(second.tryLock("job", Duration.ofMinutes(5)));
+
+        first.unlock("job");
+        assertTrue(second.tryLock("job", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void tryLock_TakesOverExpiredLease() {
+        SchedulerLockService crashed = new SchedulerLockService(jdbcTemplate);
+        SchedulerLockService other = new SchedulerLockService(jdbcTemplate);
+
+        assertTrue(crashed.tryLock("job", Duration.ofMillis(-1)));
+
+        assertTrue(other.tryLock("job", Duration.ofMinutes(5)));
+        assertFalse(crashed.extend("job", Duration.ofMinutes(5)));
+    }
+}